@@ -0,0 +1,78 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import static org.junit.Assume.assumeNotNull;
+
+import android.content.Context;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Measures {@link CustomTabsHelper#getPackageNameToUse(Context)} against the browsers installed
+ * on the device.
+ */
+@RunWith(AndroidJUnit4.class)
+public class ProviderResolutionBenchmark {
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final Context mContext =
+            InstrumentationRegistry.getInstrumentation().getTargetContext();
+
+    /**
+     * A cache miss, i.e. the PackageManager queries run on every iteration.
+     */
+    @Test
+    public void resolveCold() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            CustomTabsHelper.queryPackageNameToUse(mContext);
+        }
+    }
+
+    /**
+     * A new process that finds a valid snapshot left by an earlier one.
+     */
+    @Test
+    public void resolveFromSnapshot() throws Exception {
+        // The snapshot is written in the background, so wait for it.
+        CustomTabsHelper.queryPackageNameToUse(mContext).save(mContext).get();
+        assumeNotNull(ProviderSnapshot.load(mContext));
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            ProviderSnapshot.load(mContext);
+        }
+    }
+
+    /**
+     * A cache hit, which every call after the first one should take.
+     */
+    @Test
+    public void resolveCached() {
+        CustomTabsHelper.getPackageNameToUse(mContext);
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            CustomTabsHelper.getPackageNameToUse(mContext);
+        }
+    }
+}
@@ -17,11 +17,13 @@ package org.chromium.customtabsdemos;
 import android.content.BroadcastReceiver;
 import android.content.Context;
 import android.content.Intent;
-import android.widget.Toast;
 
 /**
  * A BroadcastReceiver that handles the Action Intent from the Custom Tab and shows the Url
  * in a Toast.
+ *
+ * <p>Clicks are handed to {@link ActionClickWorker} with goAsync(), so that nothing runs on the
+ * main thread while the broadcast is pending.
  */
 public class ActionBroadcastReceiver extends BroadcastReceiver {
     public static final String KEY_ACTION_SOURCE = "org.chromium.customtabsdemos.ACTION_SOURCE";
@@ -33,22 +35,8 @@ public class ActionBroadcastReceiver extends BroadcastReceiver {
     public void onReceive(Context context, Intent intent) {
         String url = intent.getDataString();
         if (url != null) {
-            String toastText =
-                    getToastText(context, intent.getIntExtra(KEY_ACTION_SOURCE, -1), url);
-            Toast.makeText(context, toastText, Toast.LENGTH_SHORT).show();
-        }
-    }
-
-    private String getToastText(Context context, int actionId, String url) {
-        switch (actionId) {
-            case ACTION_ACTION_BUTTON:
-                return context.getString(R.string.action_button_toast_text, url);
-            case ACTION_MENU_ITEM:
-                return context.getString(R.string.menu_item_toast_text, url);
-            case ACTION_TOOLBAR:
-                return context.getString(R.string.toolbar_toast_text, url);
-            default:
-                return context.getString(R.string.unknown_toast_text, url);
+            ActionClickWorker.getInstance(context).submit(
+                    intent.getIntExtra(KEY_ACTION_SOURCE, -1), url, goAsync());
         }
     }
 }
@@ -0,0 +1,216 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.content.BroadcastReceiver;
+import android.content.Context;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
+import android.util.Log;
+import android.widget.Toast;
+
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Processes the clicks received by {@link ActionBroadcastReceiver} in batches on a background
+ * thread.
+ *
+ * <p>The receiver hands every click over with the PendingResult of goAsync(), and returns right
+ * away. Clicks are collected for {@link #BATCH_DELAY_MS}, then processed together on the worker
+ * thread, which finishes their PendingResults. A click identical to one processed within
+ * {@link #COLLAPSE_WINDOW_MS}, i.e. same action and URL, is counted but collapsed into it.
+ * Only the Toast is shown on the main thread.
+ *
+ * <p>The number of clicks and their latency, from onReceive to the end of processing, are kept
+ * per action id.
+ *
+ * <p>This is threadsafe.
+ */
+public final class ActionClickWorker {
+    private static final String TAG = "ActionClickWorker";
+    private static final boolean DEBUG = false;
+
+    public static final long BATCH_DELAY_MS = 100;
+    public static final long COLLAPSE_WINDOW_MS = 1000;
+
+    private static ActionClickWorker sInstance;
+
+    private final Context mContext;
+    private final Handler mHandler;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mProcessRunnable = this::processBatch;
+    private final ConcurrentHashMap<Integer, ActionStats> mStats = new ConcurrentHashMap<>();
+
+    // Guarded by mPending.
+    private final List<Click> mPending = new ArrayList<>();
+    // Only used on the worker thread.
+    private final List<Click> mBatch = new ArrayList<>();
+    @Nullable
+    private Click mLastProcessed;
+
+    private ActionClickWorker(Context context) {
+        mContext = context;
+        HandlerThread thread = new HandlerThread(TAG, Process.THREAD_PRIORITY_BACKGROUND);
+        thread.start();
+        mHandler = new Handler(thread.getLooper());
+    }
+
+    public static synchronized ActionClickWorker getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new ActionClickWorker(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Queues a click. May be called on any thread.
+     *
+     * @param result the result of goAsync(), finished once the click is processed.
+     */
+    public void submit(int actionId, String url, @Nullable BroadcastReceiver.PendingResult result) {
+        Click click = new Click(actionId, url, SystemClock.uptimeMillis(), result);
+        boolean schedule;
+        synchronized (mPending) {
+            schedule = mPending.isEmpty();
+            mPending.add(click);
+        }
+        if (schedule) mHandler.postDelayed(mProcessRunnable, BATCH_DELAY_MS);
+    }
+
+    private void processBatch() {
+        synchronized (mPending) {
+            mBatch.addAll(mPending);
+            mPending.clear();
+        }
+        logd("processBatch size=" + mBatch.size());
+        try {
+            for (Click click : mBatch) {
+                process(click);
+            }
+        } finally {
+            for (Click click : mBatch) {
+                if (click.mResult != null) click.mResult.finish();
+            }
+            mBatch.clear();
+        }
+    }
+
+    private void process(Click click) {
+        ActionStats stats = getStats(click.mActionId);
+        stats.mClicks.incrementAndGet();
+        boolean collapse = mLastProcessed != null
+                && mLastProcessed.mActionId == click.mActionId
+                && mLastProcessed.mUrl.equals(click.mUrl)
+                && click.mReceivedMs - mLastProcessed.mReceivedMs < COLLAPSE_WINDOW_MS;
+        if (collapse) {
+            stats.mCollapsed.incrementAndGet();
+        } else {
+            String toastText = getToastText(click.mActionId, click.mUrl);
+            mMainHandler.post(
+                    () -> Toast.makeText(mContext, toastText, Toast.LENGTH_SHORT).show());
+        }
+        mLastProcessed = click;
+        stats.mLatency.record(SystemClock.uptimeMillis() - click.mReceivedMs);
+    }
+
+    private String getToastText(int actionId, String url) {
+        switch (actionId) {
+            case ActionBroadcastReceiver.ACTION_ACTION_BUTTON:
+                return mContext.getString(R.string.action_button_toast_text, url);
+            case ActionBroadcastReceiver.ACTION_MENU_ITEM:
+                return mContext.getString(R.string.menu_item_toast_text, url);
+            case ActionBroadcastReceiver.ACTION_TOOLBAR:
+                return mContext.getString(R.string.toolbar_toast_text, url);
+            default:
+                return mContext.getString(R.string.unknown_toast_text, url);
+        }
+    }
+
+    private ActionStats getStats(int actionId) {
+        ActionStats stats = mStats.get(actionId);
+        if (stats != null) return stats;
+        return mStats.computeIfAbsent(actionId, id -> new ActionStats());
+    }
+
+    /**
+     * @return The number of clicks received for the action, collapsed ones included.
+     */
+    public int getClickCount(int actionId) {
+        ActionStats stats = mStats.get(actionId);
+        return stats == null ? 0 : stats.mClicks.get();
+    }
+
+    /**
+     * @return The number of clicks collapsed into an identical previous one.
+     */
+    public int getCollapsedCount(int actionId) {
+        ActionStats stats = mStats.get(actionId);
+        return stats == null ? 0 : stats.mCollapsed.get();
+    }
+
+    /**
+     * @return The latencies of the action, from onReceive to the end of processing, in ms.
+     */
+    public LatencyHistogram.Snapshot getLatencySnapshot(int actionId) {
+        ActionStats stats = mStats.get(actionId);
+        return stats == null ? new LatencyHistogram().snapshot() : stats.mLatency.snapshot();
+    }
+
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (Integer actionId : mStats.keySet()) {
+            ActionStats stats = mStats.get(actionId);
+            builder.append("action=").append(actionId)
+                    .append(" clicks=").append(stats.mClicks.get())
+                    .append(" collapsed=").append(stats.mCollapsed.get())
+                    .append(" latency ").append(stats.mLatency.snapshot())
+                    .append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static class ActionStats {
+        final AtomicInteger mClicks = new AtomicInteger();
+        final AtomicInteger mCollapsed = new AtomicInteger();
+        final LatencyHistogram mLatency = new LatencyHistogram();
+    }
+
+    private static class Click {
+        final int mActionId;
+        final String mUrl;
+        final long mReceivedMs;
+        @Nullable
+        final BroadcastReceiver.PendingResult mResult;
+
+        Click(int actionId, String url, long receivedMs,
+                @Nullable BroadcastReceiver.PendingResult result) {
+            mActionId = actionId;
+            mUrl = url;
+            mReceivedMs = receivedMs;
+            mResult = result;
+        }
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
@@ -15,17 +15,24 @@
 package org.chromium.customtabsdemos;
 
 import android.app.Activity;
+import android.content.Context;
+import android.content.Intent;
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 import android.util.Log;
 
 import androidx.browser.customtabs.CustomTabsCallback;
 import androidx.browser.customtabs.CustomTabsClient;
 import androidx.browser.customtabs.CustomTabsIntent;
-import androidx.browser.customtabs.CustomTabsServiceConnection;
+import androidx.browser.customtabs.CustomTabsService;
 import androidx.browser.customtabs.CustomTabsSession;
+import androidx.core.content.ContextCompat;
+
+import org.chromium.customtabsdemos.core.PartialTabExtras;
 
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * This is a helper class to manage the connection to the Custom Tabs Service.
@@ -34,11 +41,12 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
 	private static final String TAG = "CustomTabActivityHelper";
 	private static final boolean DEBUG = false;
 
-    private static final int BACKGROUND_INTERACT_OFF_VALUE = 2;
-
-    private CustomTabsSession mCustomTabsSession;
+    private final CustomTabsLaunchDispatcher mLaunchDispatcher =
+            new CustomTabsLaunchDispatcher(this);
+    private CustomTabsConnectionManager mConnectionManager;
+    private Context mApplicationContext;
     private CustomTabsClient mClient;
-    private CustomTabsServiceConnection mConnection;
+    private CustomTabsCallback mSessionCallback;
     private ConnectionCallback mConnectionCallback;
 
     /**
@@ -50,6 +58,9 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
     public void openSimpleCustomTab(Activity activity, Uri uri) {
         logd("openSimpleCustomTab");
         CustomTabsIntent customTabsIntent = new CustomTabsIntent.Builder().build();
+        IntentParcelBudget.onLaunch(customTabsIntent.intent);
+        LaunchLatencyTracker.getInstance().onLaunch(LaunchLatencyTracker.LAUNCH_SIMPLE, false,
+                customTabsIntent.intent.getPackage());
         customTabsIntent.launchUrl(activity, uri);
     }
 
@@ -69,39 +80,27 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
                                      int toolbarCornerRadiusDp, int toolbarCornerRadiusPx,
                                      boolean enableBackgroundInteract, Uri uri) {
         log("openPartialCustomTab");
-        // Uses the established session to build a PCCT intent.
-        CustomTabsIntent.Builder intentBuilder = new CustomTabsIntent.Builder(getSession(null));
-        intentBuilder.setInitialActivityHeightPx(initialHeightDefaultPx, resizeBehavior);
-        intentBuilder.setToolbarCornerRadiusDp(toolbarCornerRadiusDp);
-
-        CustomTabsIntent customTabsIntent = intentBuilder.build();
-        customTabsIntent.intent.putExtra(
-                "androidx.browser.customtabs.extra.INITIAL_ACTIVITY_HEIGHT_IN_PIXEL",
-                initialHeightDefaultPx);
-        customTabsIntent.intent.putExtra(
-                "androidx.browser.customtabs.extra.TOOLBAR_CORNER_RADIUS_IN_PIXEL",
-                toolbarCornerRadiusPx);
-        if (resizeBehavior != CustomTabsIntent.ACTIVITY_HEIGHT_DEFAULT) {
-            customTabsIntent.intent.putExtra(
-                    CustomTabsIntent.EXTRA_ACTIVITY_HEIGHT_RESIZE_BEHAVIOR, resizeBehavior);
-        }
-        if (!enableBackgroundInteract) {
-            customTabsIntent.intent.putExtra(
-                    "androix.browser.customtabs.extra.ENABLE_BACKGROUND_INTERACTION",
-                    BACKGROUND_INTERACT_OFF_VALUE);
-        }
-        customTabsIntent.launchUrl(activity, uri);
+        // Uses the established session to build a PCCT intent, waiting briefly for it if the
+        // service is still connecting.
+        mLaunchDispatcher.launch(activity, uri, LaunchLatencyTracker.LAUNCH_PARTIAL, session -> {
+            CustomTabsIntent customTabsIntent = new CustomTabsIntent.Builder(session).build();
+            PartialTabExtras.write(customTabsIntent.intent::putExtra, resizeBehavior,
+                    initialHeightDefaultPx, toolbarCornerRadiusDp, toolbarCornerRadiusPx,
+                    enableBackgroundInteract);
+            return customTabsIntent;
+        });
     }
 
     /**
      * Opens the URL on a Custom Tab if possible. Otherwise fallsback to opening it on a WebView.
      *
      * @param activity the host activity.
-     * @param customTabsIntent
+     * @param customTabsIntent the intent to launch, or null to build one with the session. In the
+     *                         latter case the launch may wait briefly for the session.
      * @param uri the Uri to be opened.
      */
     public boolean openCustomTab(Activity activity, CustomTabsIntent customTabsIntent, Uri uri) {
-        String packageName = CustomTabsHelper.getPackageNameToUse(activity);
+        String packageName = getLaunchPackageName(activity);
 
         //If we cant find a package name, it means theres no browser that supports
         //Chrome Custom Tabs installed. So, we fallback to the webview
@@ -109,39 +108,158 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
             return false;
         }
         if (customTabsIntent == null) {
-            customTabsIntent = new CustomTabsIntent.Builder(getSession(null)).build();
+            mLaunchDispatcher.launch(activity, uri, LaunchLatencyTracker.LAUNCH_SESSION,
+                    session -> new CustomTabsIntent.Builder(session).build());
+            return true;
         }
         customTabsIntent.intent.setPackage(packageName);
+        IntentParcelBudget.onLaunch(customTabsIntent.intent);
+        LaunchLatencyTracker.getInstance().onLaunch(LaunchLatencyTracker.LAUNCH_SESSION,
+                hasSession(customTabsIntent.intent), packageName);
         customTabsIntent.launchUrl(activity, uri);
         return true;
     }
 
     /**
-     * Unbinds the Activity from the Custom Tabs Service.
+     * Opens the URL on a Custom Tab if a provider is ready within the budget, otherwise with the
+     * fallback.
+     *
+     * @param activity the host activity.
+     * @param uri the Uri to be opened.
+     * @param fallback opens the Uri when there is no provider or it is slow to bind.
+     * @param budgetMs how long the launch may wait for the session.
+     */
+    public void openCustomTab(Activity activity, Uri uri, CustomTabFallback fallback,
+            long budgetMs) {
+        openCustomTab(activity, uri, fallback, budgetMs,
+                session -> new CustomTabsIntent.Builder(session).build());
+    }
+
+    /**
+     * Like {@link #openCustomTab(Activity, Uri, CustomTabFallback, long)}, with the intent made by
+     * intentFactory for the session the launch ends up with.
+     *
+     * @param intentFactory may return a cached template, which is copied and left untouched.
+     */
+    public void openCustomTab(Activity activity, Uri uri, CustomTabFallback fallback,
+            long budgetMs, CustomTabsLaunchDispatcher.IntentFactory intentFactory) {
+        mLaunchDispatcher.launch(activity, uri, LaunchLatencyTracker.LAUNCH_SESSION, budgetMs,
+                fallback, intentFactory);
+    }
+
+    /**
+     * Opens the URL on a Custom Tab with a copy of a prebuilt intent, so that only the URL has to
+     * be filled in at launch. Meant for a template built for the current session; without one,
+     * use {@link #openCustomTab(Activity, Uri, CustomTabFallback, long,
+     * CustomTabsLaunchDispatcher.IntentFactory)}, which waits for the session.
+     *
+     * @param activity the host activity.
+     * @param template the intent to copy, which is left untouched.
+     * @param uri the Uri to be opened.
+     * @return false if there is no Custom Tabs provider.
+     */
+    public boolean openCustomTabFromTemplate(Activity activity, CustomTabsIntent template,
+            Uri uri) {
+        String packageName = getLaunchPackageName(activity);
+        if (packageName == null) {
+            return false;
+        }
+        Intent intent = new Intent(template.intent);
+        intent.setPackage(packageName);
+        intent.setData(uri);
+        IntentParcelBudget.onLaunch(intent);
+        LaunchLatencyTracker.getInstance().onLaunch(LaunchLatencyTracker.LAUNCH_SESSION,
+                hasSession(intent), packageName);
+        ContextCompat.startActivity(activity, intent, template.startAnimationBundle);
+        return true;
+    }
+
+    /**
+     * @return The package of the connected provider, which may be the hot standby, or else the
+     *         preferred one.
+     */
+    String getLaunchPackageName(Context context) {
+        String packageName = mConnectionManager == null
+                ? null : mConnectionManager.getConnectedPackageName();
+        return packageName != null ? packageName : CustomTabsHelper.getPackageNameToUse(context);
+    }
+
+    private static boolean hasSession(Intent intent) {
+        Bundle extras = intent.getExtras();
+        return extras != null && extras.getBinder(CustomTabsIntent.EXTRA_SESSION) != null;
+    }
+
+    /**
+     * Unbinds the Activity from the Custom Tabs Service. The process-wide connection stays up for a
+     * grace period, so that the next screen can reuse it. The session callback stays registered,
+     * since the Activity is stopped while the Custom Tab it opened is shown; see
+     * {@link #removeSessionCallback(Activity)}.
      * @param activity the activity that is connected to the service.
      */
     public void unbindCustomTabsService(Activity activity) {
-        if (mConnection == null) return;
-        activity.unbindService(mConnection);
+        if (mConnectionManager == null) return;
+        mLaunchDispatcher.cancelPending();
+        mConnectionManager.release(this);
+        mConnectionManager = null;
         mClient = null;
-        mCustomTabsSession = null;
-        mConnection = null;
     }
 
     /**
-     * Creates or retrieves an exiting CustomTabsSession.
+     * Retrieves the CustomTabsSession shared by every screen of the app.
      *
-     * @return a CustomTabsSession.
+     * @param customTabsCallback receives the events of the session until
+     *                           {@link #removeSessionCallback(Activity)}, may be null.
+     * @return a CustomTabsSession, or null if the service is not connected.
      */
     public CustomTabsSession getSession(CustomTabsCallback customTabsCallback) {
         if (mClient == null) {
             loge("getSession null client");
-            mCustomTabsSession = null;
-        } else if (mCustomTabsSession == null) {
-            log("getSession get new session");
-            mCustomTabsSession = mClient.newSession(customTabsCallback);
+            return null;
+        }
+        setSessionCallback(customTabsCallback);
+        return mConnectionManager.getSession();
+    }
+
+    /**
+     * Retrieves the CustomTabsSession shared by every screen of the app, waiting for the service
+     * to connect if needed. Must be called on the main thread.
+     *
+     * @param customTabsCallback receives the events of the session until
+     *                           {@link #removeSessionCallback(Activity)}, may be null.
+     * @param timeoutMs how long to wait for the service to connect.
+     * @return a future that completes with the session right away if it already exists, or once
+     *         the service connects. It fails if the Activity is not bound or the timeout expires.
+     */
+    public CompletableFuture<CustomTabsSession> getSessionAsync(
+            CustomTabsCallback customTabsCallback, long timeoutMs) {
+        if (mConnectionManager == null) {
+            loge("getSessionAsync not bound");
+            CompletableFuture<CustomTabsSession> future = new CompletableFuture<>();
+            future.completeExceptionally(new IllegalStateException("Not bound"));
+            return future;
+        }
+        setSessionCallback(customTabsCallback);
+        return mConnectionManager.getSessionAsync(timeoutMs);
+    }
+
+    /**
+     * Stops forwarding the events of the session to the callback passed to
+     * {@link #getSession(CustomTabsCallback)}. Call it when the Activity is destroyed.
+     * @param activity the activity that registered the callback.
+     */
+    public void removeSessionCallback(Activity activity) {
+        if (mSessionCallback == null) return;
+        CustomTabsConnectionManager.getInstance(activity).removeSessionCallback(mSessionCallback);
+        mSessionCallback = null;
+    }
+
+    private void setSessionCallback(CustomTabsCallback customTabsCallback) {
+        if (customTabsCallback == null || customTabsCallback == mSessionCallback) return;
+        if (mSessionCallback != null) {
+            mConnectionManager.removeSessionCallback(mSessionCallback);
         }
-        return mCustomTabsSession;
+        mSessionCallback = customTabsCallback;
+        mConnectionManager.addSessionCallback(customTabsCallback);
     }
 
     /**
@@ -157,29 +275,26 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
      * @return true if binding is requested successfully.
      */
     public boolean bindCustomTabsService(Activity activity) {
-        if (mClient != null) {
-        	loge("bindCustomTabsService non-null client");
+        if (mConnectionManager != null) {
+        	loge("bindCustomTabsService already bound");
         	return false;
         }
 
-        String packageName = CustomTabsHelper.getPackageNameToUse(activity);
-        log("bindCustomTabsService packageName=" + packageName);
-
-        if (packageName == null) {
-            return false;
-        }
-        mConnection = new ServiceConnection(this);
-        CustomTabsClient.bindCustomTabsService(activity, packageName, mConnection);
-        return true;
+        mApplicationContext = activity.getApplicationContext();
+        mConnectionManager = CustomTabsConnectionManager.getInstance(activity);
+        boolean ret = mConnectionManager.acquire(this);
+        log("bindCustomTabsService ret=" + ret);
+        return ret;
     }
 
     /**
      * @see {@link CustomTabsSession#mayLaunchUrl(Uri, Bundle, List)}.
-     * @return true if call to mayLaunchUrl was accepted.
+     * @return true if call to mayLaunchUrl was accepted, false if it was refused or throttled.
      */
     public boolean mayLaunchUrl(Uri uri, Bundle extras, List<Bundle> otherLikelyBundles) {
         if (mClient == null) {
         	loge("mayLaunchUrl null client");
+        	prefetchForFallback(uri, otherLikelyBundles);
         	return false;
         }
 
@@ -189,16 +304,42 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
             return false;
         }
 
+        // Repeated, too frequent or backed-off hints are dropped without a binder call.
+        MayLaunchUrlThrottler throttler = mConnectionManager.getMayLaunchUrlThrottler();
+        String url = uri == null ? "" : uri.toString();
+        if (!throttler.tryAcquire(url, SystemClock.elapsedRealtime())) {
+            logd("mayLaunchUrl throttled uri=" + uri);
+            return false;
+        }
+
         boolean ret = session.mayLaunchUrl(uri, extras, otherLikelyBundles);
+        throttler.onResult(ret, SystemClock.elapsedRealtime());
         log("mayLaunchUrl ret=" + ret);
         return ret;
     }
 
+    /**
+     * Without a Custom Tabs provider the links will open in the {@link WebviewFallback}, so the
+     * hints prefetch them into its cache instead.
+     */
+    private void prefetchForFallback(Uri uri, List<Bundle> otherLikelyBundles) {
+        if (mApplicationContext == null
+                || CustomTabsHelper.getPackageNameToUse(mApplicationContext) != null) {
+            return;
+        }
+        FallbackContentCache cache = FallbackContentCache.getInstance(mApplicationContext);
+        cache.prefetch(uri);
+        if (otherLikelyBundles == null) return;
+        for (Bundle bundle : otherLikelyBundles) {
+            cache.prefetch(bundle.getParcelable(CustomTabsService.KEY_URL));
+        }
+    }
+
     @Override
     public void onServiceConnected(CustomTabsClient client) {
         log("onServiceConnected");
+        // Warmup has already been sent by the connection manager.
         mClient = client;
-        mClient.warmup(0L);
         if (mConnectionCallback == null) {
         	loge("onServiceConnected null callback");
         } else {
@@ -210,7 +351,6 @@ public class CustomTabActivityHelper implements ServiceConnectionCallback {
     public void onServiceDisconnected() {
         log("onServiceDisonnected");
         mClient = null;
-        mCustomTabsSession = null;
         if (mConnectionCallback == null) {
         	loge("onServiceDisonnected null callback");
         } else {
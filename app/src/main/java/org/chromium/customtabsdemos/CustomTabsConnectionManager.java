@@ -0,0 +1,731 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.content.Context;
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.MessageQueue;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsCallback;
+import androidx.browser.customtabs.CustomTabsClient;
+import androidx.browser.customtabs.CustomTabsServiceConnection;
+import androidx.browser.customtabs.CustomTabsSession;
+import androidx.browser.customtabs.EngagementSignalsCallback;
+
+import org.chromium.customtabsdemos.core.ProviderScores;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Keeps a single connection to the Custom Tabs Service for the whole process.
+ *
+ * <p>Every screen that needs the connection acquires it when it starts and releases it when it
+ * stops. The service is only unbound once nobody has held a reference for the grace period, so
+ * moving between screens or rotating keeps the same {@link CustomTabsClient} and
+ * {@link CustomTabsSession}, and warmup is only sent once per connection.
+ *
+ * <p>In hot-standby mode, see {@link #setStandbyEnabled(boolean)}, a second provider is bound and
+ * warmed up too. When the primary provider disconnects, e.g. because the browser was killed,
+ * the standby becomes the connected client right away, and the primary is bound again in the
+ * background with a backoff. Once it is back, it takes over again.
+ *
+ * <p>The bind, warmup call and launch to TAB_SHOWN latencies of the providers the app binds and
+ * launches are recorded in the {@link ProviderScoreboard}. Binding a browser starts its process,
+ * so the other candidates are only measured when probing is enabled, see
+ * {@link #setProbingEnabled(boolean)}.
+ *
+ * <p>All methods must be called on the main thread.
+ */
+public class CustomTabsConnectionManager implements ServiceConnectionCallback {
+    private static final String TAG = "CustomTabsConnectionManager";
+    private static final boolean DEBUG = false;
+
+    public static final long DEFAULT_GRACE_PERIOD_MS = 5000;
+    private static final long REBIND_INITIAL_DELAY_MS = 1000;
+    private static final long REBIND_MAX_DELAY_MS = 30000;
+    private static final long PROBE_DELAY_MS = 10000;
+    private static final long PROBE_TIMEOUT_MS = 5000;
+
+    private static CustomTabsConnectionManager sInstance;
+
+    private final Context mAppContext;
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mUnbindRunnable = this::unbindIfUnused;
+    private final Runnable mRebindRunnable = this::rebindPrimary;
+    private final Runnable mProbeRunnable = this::scheduleProbeWhenIdle;
+    private final Runnable mProbeTimeoutRunnable = this::endProbe;
+    private final ServiceConnectionCallback mStandbyCallback = new StandbyCallback();
+    private final List<ServiceConnectionCallback> mCallbacks = new ArrayList<>();
+    // CustomTabsClient posts the session callbacks to the main thread. The copy-on-write lists let
+    // a callback unregister itself while an event is being dispatched.
+    private final List<CustomTabsCallback> mSessionCallbacks = new CopyOnWriteArrayList<>();
+    private final CustomTabsCallback mDispatchingCallback = new DispatchingCallback();
+    private final List<EngagementSignalsCallback> mEngagementSignalsCallbacks =
+            new CopyOnWriteArrayList<>();
+    private final EngagementSignalsCallback mDispatchingEngagementSignalsCallback =
+            new DispatchingEngagementSignalsCallback();
+    private final List<CompletableFuture<CustomTabsSession>> mSessionWaiters = new ArrayList<>();
+    private final MayLaunchUrlThrottler mMayLaunchUrlThrottler = new MayLaunchUrlThrottler();
+
+    private long mGracePeriodMs = DEFAULT_GRACE_PERIOD_MS;
+    private int mRefCount;
+    // The primary provider.
+    private String mPackageName;
+    private CustomTabsServiceConnection mConnection;
+    private CustomTabsClient mPrimaryClient;
+    private boolean mPrimaryLost;
+    private long mRebindDelayMs;
+    private long mBindStartMs;
+    // The standby provider, only bound in hot-standby mode.
+    private boolean mStandbyEnabled;
+    private String mStandbyPackageName;
+    private CustomTabsServiceConnection mStandbyConnection;
+    private CustomTabsClient mStandbyClient;
+    private long mStandbyBindStartMs;
+    private int mFailoverCount;
+    // The candidate being probed, and those already probed by this process.
+    private String mProbePackageName;
+    private CustomTabsServiceConnection mProbeConnection;
+    private final Set<String> mProbedPackageNames = new HashSet<>();
+    private boolean mProbingEnabled;
+    // The client launches go to, either the primary or the standby one.
+    private CustomTabsClient mClient;
+    private String mClientPackageName;
+    private CustomTabsSession mSession;
+
+    private CustomTabsConnectionManager(Context context) {
+        mAppContext = context.getApplicationContext();
+        mSessionCallbacks.add(LaunchLatencyTracker.getInstance());
+        LaunchLatencyTracker.getInstance().setListener(this::onLaunchLatency);
+    }
+
+    /**
+     * @return The process-wide connection manager.
+     */
+    public static CustomTabsConnectionManager getInstance(Context context) {
+        if (sInstance == null) sInstance = new CustomTabsConnectionManager(context);
+        return sInstance;
+    }
+
+    /**
+     * Sets how long the service stays bound after the last reference has been released.
+     */
+    public void setGracePeriodMs(long gracePeriodMs) {
+        mGracePeriodMs = gracePeriodMs;
+    }
+
+    /**
+     * Enables or disables the hot-standby mode. When enabled, the next candidate provider after
+     * the primary one is bound too, and takes over launches while the primary is disconnected.
+     */
+    public void setStandbyEnabled(boolean enabled) {
+        if (mStandbyEnabled == enabled) return;
+        mStandbyEnabled = enabled;
+        log("setStandbyEnabled " + enabled);
+        if (!enabled) {
+            mHandler.removeCallbacks(mRebindRunnable);
+            unbindStandby();
+        } else if (mConnection != null) {
+            bindStandby();
+        }
+    }
+
+    /**
+     * Enables or disables probing, off by default. When enabled, while a connection is held and
+     * the main thread is idle, each other candidate that lacks samples is bound in turn to measure
+     * its bind time, and unbound again right away. It is not warmed up.
+     */
+    public void setProbingEnabled(boolean enabled) {
+        if (mProbingEnabled == enabled) return;
+        mProbingEnabled = enabled;
+        log("setProbingEnabled " + enabled);
+        mHandler.removeCallbacks(mProbeRunnable);
+        if (!enabled) {
+            endProbe();
+        } else if (mConnection != null) {
+            mHandler.postDelayed(mProbeRunnable, PROBE_DELAY_MS);
+        }
+    }
+
+    /**
+     * @return The number of times launches switched to the standby provider.
+     */
+    public int getFailoverCount() {
+        return mFailoverCount;
+    }
+
+    /**
+     * Takes a reference on the connection, binding the service if needed. If the service is
+     * already connected, {@link ServiceConnectionCallback#onServiceConnected} is called right away.
+     *
+     * @param callback notified when the service is connected or disconnected, until released.
+     * @return false if there is no Custom Tabs provider to bind to.
+     */
+    public boolean acquire(ServiceConnectionCallback callback) {
+        mRefCount++;
+        mHandler.removeCallbacks(mUnbindRunnable);
+        mCallbacks.add(callback);
+        logd("acquire refCount=" + mRefCount);
+
+        if (mClient != null) {
+            callback.onServiceConnected(mClient);
+            return true;
+        }
+        return mConnection != null || bind();
+    }
+
+    /**
+     * Releases a reference taken with {@link #acquire(ServiceConnectionCallback)}. The service is
+     * unbound after the grace period unless another reference is taken in the meantime.
+     */
+    public void release(ServiceConnectionCallback callback) {
+        if (!mCallbacks.remove(callback)) {
+            loge("release unknown callback");
+            return;
+        }
+        mRefCount--;
+        logd("release refCount=" + mRefCount);
+        if (mRefCount == 0) mHandler.postDelayed(mUnbindRunnable, mGracePeriodMs);
+    }
+
+    /**
+     * Binds the service without taking a reference, so that the browser is warm before the first
+     * screen acquires the connection. Unless a screen acquires it in the meantime, the service is
+     * unbound again after {@code holdMs}.
+     *
+     * @return false if there is no Custom Tabs provider to bind to.
+     */
+    public boolean prewarm(long holdMs) {
+        if (mConnection != null) return true;
+        if (!bind()) return false;
+        if (mRefCount == 0) mHandler.postDelayed(mUnbindRunnable, holdMs);
+        return true;
+    }
+
+    /**
+     * @return The connected client, or null if the service is not connected.
+     */
+    @Nullable
+    public CustomTabsClient getClient() {
+        return mClient;
+    }
+
+    /**
+     * @return The package of the connected client, which may be the standby provider, or null if
+     *         the service is not connected.
+     */
+    @Nullable
+    public String getConnectedPackageName() {
+        return mClient == null ? null : mClientPackageName;
+    }
+
+    /**
+     * Creates or retrieves the session shared by every screen.
+     *
+     * @return The session, or null if the service is not connected.
+     */
+    @Nullable
+    public CustomTabsSession getSession() {
+        if (mClient == null) return null;
+        if (mSession == null) {
+            logd("getSession new session");
+            mSession = mClient.newSession(mDispatchingCallback);
+        }
+        return mSession;
+    }
+
+    /**
+     * Asynchronously retrieves the session shared by every screen.
+     *
+     * <p>The future completes right away if a session already exists, and otherwise when the
+     * service connects. It fails with a {@link TimeoutException} if that takes longer than
+     * {@code timeoutMs}, and with an {@link IllegalStateException} if the service is not bound or
+     * gets unbound. Cancelling the future stops waiting.
+     */
+    public CompletableFuture<CustomTabsSession> getSessionAsync(long timeoutMs) {
+        CompletableFuture<CustomTabsSession> future = new CompletableFuture<>();
+        CustomTabsSession session = getSession();
+        if (session != null) {
+            future.complete(session);
+            return future;
+        }
+        if (mConnection == null) {
+            future.completeExceptionally(new IllegalStateException("Service not bound"));
+            return future;
+        }
+
+        mSessionWaiters.add(future);
+        Runnable timeout = () -> {
+            mSessionWaiters.remove(future);
+            future.completeExceptionally(
+                    new TimeoutException("No session after " + timeoutMs + "ms"));
+        };
+        mHandler.postDelayed(timeout, timeoutMs);
+        future.whenComplete((result, error) -> {
+            mHandler.removeCallbacks(timeout);
+            // Drops cancelled futures; a no-op for the others, which are removed already.
+            mHandler.post(() -> mSessionWaiters.remove(future));
+        });
+        return future;
+    }
+
+    /**
+     * @return The throttler every mayLaunchUrl hint on the shared session goes through.
+     */
+    public MayLaunchUrlThrottler getMayLaunchUrlThrottler() {
+        return mMayLaunchUrlThrottler;
+    }
+
+    /**
+     * Registers a callback for the events of the shared session.
+     */
+    public void addSessionCallback(CustomTabsCallback callback) {
+        if (!mSessionCallbacks.contains(callback)) mSessionCallbacks.add(callback);
+    }
+
+    /**
+     * Unregisters a callback added with {@link #addSessionCallback(CustomTabsCallback)}.
+     */
+    public void removeSessionCallback(CustomTabsCallback callback) {
+        mSessionCallbacks.remove(callback);
+    }
+
+    /**
+     * Registers a callback for the engagement signals of the shared session. They only arrive once
+     * {@link #getEngagementSignalsCallback()} has been set on the session.
+     */
+    public void addEngagementSignalsCallback(EngagementSignalsCallback callback) {
+        if (!mEngagementSignalsCallbacks.contains(callback)) {
+            mEngagementSignalsCallbacks.add(callback);
+        }
+    }
+
+    /**
+     * Unregisters a callback added with
+     * {@link #addEngagementSignalsCallback(EngagementSignalsCallback)}.
+     */
+    public void removeEngagementSignalsCallback(EngagementSignalsCallback callback) {
+        mEngagementSignalsCallbacks.remove(callback);
+    }
+
+    /**
+     * @return The callback to set on the shared session, which forwards the engagement signals to
+     *         every registered callback. A session holds one engagement signals callback, so
+     *         setting a screen's own one would keep that screen alive as long as the session.
+     */
+    public EngagementSignalsCallback getEngagementSignalsCallback() {
+        return mDispatchingEngagementSignalsCallback;
+    }
+
+    @Override
+    public void onServiceConnected(CustomTabsClient client) {
+        log("onServiceConnected");
+        if (mBindStartMs != 0) {
+            recordScore(mPackageName, ProviderScores.METRIC_BIND,
+                    SystemClock.elapsedRealtime() - mBindStartMs);
+            mBindStartMs = 0;
+        }
+        mPrimaryClient = client;
+        mPrimaryLost = false;
+        mRebindDelayMs = 0;
+        mHandler.removeCallbacks(mRebindRunnable);
+        setClient(client, mPackageName);
+        mHandler.removeCallbacks(mProbeRunnable);
+        if (mProbingEnabled) mHandler.postDelayed(mProbeRunnable, PROBE_DELAY_MS);
+    }
+
+    @Override
+    public void onServiceDisconnected() {
+        log("onServiceDisconnected");
+        // The binding is kept, so the system reconnects once the browser is available again.
+        mPrimaryClient = null;
+        if (mStandbyEnabled) {
+            mPrimaryLost = true;
+            scheduleRebind();
+            if (mStandbyClient != null) {
+                mFailoverCount++;
+                log("failover to " + mStandbyPackageName);
+                setClient(mStandbyClient, mStandbyPackageName);
+                return;
+            }
+        }
+        clearClient();
+    }
+
+    /**
+     * Makes the client the one launches go to, and tells every screen.
+     */
+    private void setClient(CustomTabsClient client, String packageName) {
+        mClient = client;
+        mClientPackageName = packageName;
+        // The session belongs to the previous client, if any.
+        mSession = null;
+        warmup(client, packageName);
+        // A new browser process has none of the earlier hints.
+        mMayLaunchUrlThrottler.reset();
+        for (ServiceConnectionCallback callback : new ArrayList<>(mCallbacks)) {
+            callback.onServiceConnected(client);
+        }
+        completeSessionWaiters();
+    }
+
+    /**
+     * Sends warmup and records how long the call took to return. That is the binder round trip
+     * into the provider; the warm-up itself continues in the browser afterwards and is not timed.
+     */
+    private void warmup(CustomTabsClient client, String packageName) {
+        long startMs = SystemClock.elapsedRealtime();
+        client.warmup(0L);
+        recordScore(packageName, ProviderScores.METRIC_WARMUP,
+                SystemClock.elapsedRealtime() - startMs);
+    }
+
+    /**
+     * Called by {@link LaunchLatencyTracker}, on the thread the event arrived on.
+     */
+    private void onLaunchLatency(int launchType, int event, long latencyMs,
+            @Nullable String packageName) {
+        if (event != LaunchLatencyTracker.EVENT_TAB_SHOWN) return;
+        // Credited to the provider the launch went to, even if the connection failed over since.
+        recordScore(packageName, ProviderScores.METRIC_TAB_SHOWN, latencyMs);
+    }
+
+    private void recordScore(@Nullable String packageName, int metric, long latencyMs) {
+        ProviderScoreboard.getInstance(mAppContext).record(packageName, metric, latencyMs);
+    }
+
+    private void clearClient() {
+        mClient = null;
+        mClientPackageName = null;
+        mSession = null;
+        for (ServiceConnectionCallback callback : new ArrayList<>(mCallbacks)) {
+            callback.onServiceDisconnected();
+        }
+    }
+
+    private void completeSessionWaiters() {
+        if (mSessionWaiters.isEmpty()) return;
+        List<CompletableFuture<CustomTabsSession>> waiters = new ArrayList<>(mSessionWaiters);
+        mSessionWaiters.clear();
+        CustomTabsSession session = getSession();
+        for (CompletableFuture<CustomTabsSession> waiter : waiters) {
+            if (session != null) {
+                waiter.complete(session);
+            } else {
+                waiter.completeExceptionally(new IllegalStateException("Session not created"));
+            }
+        }
+    }
+
+    private void failSessionWaiters() {
+        if (mSessionWaiters.isEmpty()) return;
+        List<CompletableFuture<CustomTabsSession>> waiters = new ArrayList<>(mSessionWaiters);
+        mSessionWaiters.clear();
+        for (CompletableFuture<CustomTabsSession> waiter : waiters) {
+            waiter.completeExceptionally(new IllegalStateException("Service unbound"));
+        }
+    }
+
+    private boolean bind() {
+        String packageName = CustomTabsHelper.getPackageNameToUse(mAppContext);
+        log("bind packageName=" + packageName);
+        if (packageName == null) return false;
+
+        mConnection = new ServiceConnection(this);
+        mBindStartMs = SystemClock.elapsedRealtime();
+        if (!CustomTabsClient.bindCustomTabsService(mAppContext, packageName, mConnection)) {
+            loge("bind failed");
+            mBindStartMs = 0;
+            mConnection = null;
+            return false;
+        }
+        mPackageName = packageName;
+        if (mStandbyEnabled) bindStandby();
+        return true;
+    }
+
+    private void bindStandby() {
+        if (mStandbyConnection != null) return;
+        String packageName = CustomTabsHelper.getStandbyPackageName(mAppContext);
+        log("bindStandby packageName=" + packageName);
+        if (packageName == null || packageName.equals(mPackageName)) return;
+
+        CustomTabsServiceConnection connection = new ServiceConnection(mStandbyCallback);
+        mStandbyBindStartMs = SystemClock.elapsedRealtime();
+        if (!CustomTabsClient.bindCustomTabsService(mAppContext, packageName, connection)) {
+            loge("bindStandby failed");
+            return;
+        }
+        mStandbyConnection = connection;
+        mStandbyPackageName = packageName;
+    }
+
+    private void unbindStandby() {
+        if (mStandbyConnection == null) return;
+        log("unbindStandby");
+        mAppContext.unbindService(mStandbyConnection);
+        mStandbyConnection = null;
+        boolean wasClient = mClient != null && mClient == mStandbyClient;
+        mStandbyClient = null;
+        mStandbyPackageName = null;
+        if (wasClient) clearClient();
+    }
+
+    private void scheduleRebind() {
+        mRebindDelayMs = mRebindDelayMs == 0
+                ? REBIND_INITIAL_DELAY_MS : Math.min(mRebindDelayMs * 2, REBIND_MAX_DELAY_MS);
+        mHandler.removeCallbacks(mRebindRunnable);
+        mHandler.postDelayed(mRebindRunnable, mRebindDelayMs);
+    }
+
+    /**
+     * Binds the primary provider again, in case its binding died with the browser, until it
+     * connects.
+     */
+    private void rebindPrimary() {
+        if (mConnection == null || mPrimaryClient != null) return;
+        log("rebindPrimary packageName=" + mPackageName);
+        try {
+            mAppContext.unbindService(mConnection);
+        } catch (IllegalArgumentException e) {
+            // The previous rebind failed, so there was nothing to unbind.
+        }
+        mConnection = new ServiceConnection(this);
+        mBindStartMs = SystemClock.elapsedRealtime();
+        if (!CustomTabsClient.bindCustomTabsService(mAppContext, mPackageName, mConnection)) {
+            loge("rebindPrimary failed");
+            mBindStartMs = 0;
+        }
+        scheduleRebind();
+    }
+
+    private void scheduleProbeWhenIdle() {
+        Looper.myQueue().addIdleHandler(() -> {
+            probeNext();
+            return false;
+        });
+    }
+
+    /**
+     * Binds the next candidate that lacks samples, to measure its bind.
+     */
+    private void probeNext() {
+        if (!mProbingEnabled || mConnection == null || mProbeConnection != null) return;
+        ProviderScoreboard scoreboard = ProviderScoreboard.getInstance(mAppContext);
+        if (!scoreboard.isRankingEnabled()) return;
+        for (String packageName : CustomTabsHelper.getCandidatePackageNames(mAppContext)) {
+            if (packageName.equals(mPackageName) || packageName.equals(mStandbyPackageName)
+                    || mProbedPackageNames.contains(packageName)
+                    || !scoreboard.getScores().needsProbe(packageName)) {
+                continue;
+            }
+            mProbedPackageNames.add(packageName);
+            log("probe packageName=" + packageName);
+            CustomTabsServiceConnection connection =
+                    new ServiceConnection(new ProbeCallback(SystemClock.elapsedRealtime()));
+            if (!CustomTabsClient.bindCustomTabsService(mAppContext, packageName, connection)) {
+                loge("probe bind failed");
+                continue;
+            }
+            mProbeConnection = connection;
+            mProbePackageName = packageName;
+            mHandler.postDelayed(mProbeTimeoutRunnable, PROBE_TIMEOUT_MS);
+            return;
+        }
+    }
+
+    /**
+     * Unbinds the probed candidate, and probes the next one after a while.
+     */
+    private void endProbe() {
+        if (mProbeConnection == null) return;
+        logd("endProbe packageName=" + mProbePackageName);
+        mHandler.removeCallbacks(mProbeTimeoutRunnable);
+        mAppContext.unbindService(mProbeConnection);
+        mProbeConnection = null;
+        mProbePackageName = null;
+        if (mProbingEnabled && mConnection != null) {
+            mHandler.postDelayed(mProbeRunnable, PROBE_DELAY_MS);
+        }
+    }
+
+    private void unbindIfUnused() {
+        if (mRefCount > 0 || mConnection == null) return;
+        log("unbind");
+        mHandler.removeCallbacks(mRebindRunnable);
+        mHandler.removeCallbacks(mProbeRunnable);
+        try {
+            mAppContext.unbindService(mConnection);
+        } catch (IllegalArgumentException e) {
+            // A failed rebind left nothing to unbind.
+        }
+        unbindStandby();
+        mConnection = null;
+        endProbe();
+        mPackageName = null;
+        mPrimaryClient = null;
+        mPrimaryLost = false;
+        mRebindDelayMs = 0;
+        mClient = null;
+        mClientPackageName = null;
+        mSession = null;
+        failSessionWaiters();
+    }
+
+    /**
+     * Tracks the connection to the standby provider.
+     */
+    private class StandbyCallback implements ServiceConnectionCallback {
+        @Override
+        public void onServiceConnected(CustomTabsClient client) {
+            log("standby onServiceConnected");
+            if (mStandbyBindStartMs != 0) {
+                recordScore(mStandbyPackageName, ProviderScores.METRIC_BIND,
+                        SystemClock.elapsedRealtime() - mStandbyBindStartMs);
+                mStandbyBindStartMs = 0;
+            }
+            mStandbyClient = client;
+            warmup(client, mStandbyPackageName);
+            // The primary went away before the standby was ready.
+            if (mPrimaryLost && mClient == null) {
+                mFailoverCount++;
+                setClient(client, mStandbyPackageName);
+            }
+        }
+
+        @Override
+        public void onServiceDisconnected() {
+            log("standby onServiceDisconnected");
+            boolean wasClient = mClient != null && mClient == mStandbyClient;
+            mStandbyClient = null;
+            if (wasClient) clearClient();
+        }
+    }
+
+    /**
+     * Tracks the connection to a probed candidate, which is only kept for one sample.
+     */
+    private class ProbeCallback implements ServiceConnectionCallback {
+        private final long mBindStartMs;
+
+        ProbeCallback(long bindStartMs) {
+            mBindStartMs = bindStartMs;
+        }
+
+        @Override
+        public void onServiceConnected(CustomTabsClient client) {
+            if (mProbeConnection == null) return;
+            recordScore(mProbePackageName, ProviderScores.METRIC_BIND,
+                    SystemClock.elapsedRealtime() - mBindStartMs);
+            endProbe();
+        }
+
+        @Override
+        public void onServiceDisconnected() {}
+    }
+
+    /**
+     * Forwards the events of the shared session to every registered callback.
+     */
+    private class DispatchingCallback extends CustomTabsCallback {
+        @Override
+        public void onNavigationEvent(int navigationEvent, @Nullable Bundle extras) {
+            for (CustomTabsCallback callback : mSessionCallbacks) {
+                callback.onNavigationEvent(navigationEvent, extras);
+            }
+        }
+
+        @Override
+        public void extraCallback(@NonNull String callbackName, @Nullable Bundle args) {
+            for (CustomTabsCallback callback : mSessionCallbacks) {
+                callback.extraCallback(callbackName, args);
+            }
+        }
+
+        @Override
+        public void onMessageChannelReady(@Nullable Bundle extras) {
+            for (CustomTabsCallback callback : mSessionCallbacks) {
+                callback.onMessageChannelReady(extras);
+            }
+        }
+
+        @Override
+        public void onPostMessage(@NonNull String message, @Nullable Bundle extras) {
+            for (CustomTabsCallback callback : mSessionCallbacks) {
+                callback.onPostMessage(message, extras);
+            }
+        }
+
+        @Override
+        public void onRelationshipValidationResult(int relation, @NonNull Uri requestedOrigin,
+                boolean result, @Nullable Bundle extras) {
+            for (CustomTabsCallback callback : mSessionCallbacks) {
+                callback.onRelationshipValidationResult(relation, requestedOrigin, result, extras);
+            }
+        }
+    }
+
+    /**
+     * Forwards the engagement signals of the shared session to every registered callback.
+     */
+    private class DispatchingEngagementSignalsCallback implements EngagementSignalsCallback {
+        @Override
+        public void onVerticalScrollEvent(boolean isDirectionUp, @NonNull Bundle extras) {
+            for (EngagementSignalsCallback callback : mEngagementSignalsCallbacks) {
+                callback.onVerticalScrollEvent(isDirectionUp, extras);
+            }
+        }
+
+        @Override
+        public void onGreatestScrollPercentageIncreased(int scrollPercentage,
+                @NonNull Bundle extras) {
+            for (EngagementSignalsCallback callback : mEngagementSignalsCallbacks) {
+                callback.onGreatestScrollPercentageIncreased(scrollPercentage, extras);
+            }
+        }
+
+        @Override
+        public void onSessionEnded(boolean didUserInteract, @NonNull Bundle extras) {
+            for (EngagementSignalsCallback callback : mEngagementSignalsCallbacks) {
+                callback.onSessionEnded(didUserInteract, extras);
+            }
+        }
+    }
+
+    private static void log(String msg) {
+        Log.i(TAG, msg);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+
+    private static void loge(String msg) {
+        Log.e(TAG, msg);
+    }
+}
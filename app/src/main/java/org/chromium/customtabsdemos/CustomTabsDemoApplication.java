@@ -0,0 +1,76 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.app.Application;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Opts the demo app into prewarming the Custom Tabs service at process start, and holds the
+ * process-wide {@link EngagementEventStore}.
+ */
+public class CustomTabsDemoApplication extends Application {
+    private static final String TAG = "CustomTabsDemoApplication";
+    private static final String EVENTS_DIRECTORY = "engagement-events";
+
+    private final Executor mStoreExecutor = Executors.newSingleThreadExecutor();
+    @Nullable
+    private volatile EngagementEventStore mEventStore;
+
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        CustomTabsConnectionManager.getInstance(this)
+                .setStandbyEnabled(getResources().getBoolean(R.bool.custom_tabs_hot_standby));
+        CustomTabsConnectionManager.getInstance(this)
+                .setProbingEnabled(getResources().getBoolean(R.bool.custom_tabs_probe_providers));
+        CustomTabsPrewarmer.start(this, CustomTabsPrewarmer.MAIN_PROCESS_POLICY);
+        // Opening maps a file, keep it off the main thread.
+        mStoreExecutor.execute(this::openEventStore);
+    }
+
+    @Override
+    public void onTrimMemory(int level) {
+        super.onTrimMemory(level);
+        // Hiding the UI alone keeps the pooled WebViews for the next fallback.
+        if (level >= TRIM_MEMORY_RUNNING_LOW && level != TRIM_MEMORY_UI_HIDDEN) {
+            WebViewPool.getInstance(this).clear();
+        }
+    }
+
+    private void openEventStore() {
+        try {
+            mEventStore = new EngagementEventStore(
+                    new File(getFilesDir(), EVENTS_DIRECTORY), mStoreExecutor);
+        } catch (IOException e) {
+            Log.e(TAG, "Engagement events will not be persisted", e);
+        }
+    }
+
+    /**
+     * @return The event store, or null if it is not open yet or could not be opened.
+     */
+    @Nullable
+    public EngagementEventStore getEngagementEventStore() {
+        return mEventStore;
+    }
+}
@@ -16,6 +16,7 @@ package org.chromium.customtabsdemos;
 
 import static android.content.pm.PackageManager.MATCH_DEFAULT_ONLY;
 
+import android.content.BroadcastReceiver;
 import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
@@ -23,11 +24,19 @@ import android.content.IntentFilter;
 import android.content.pm.PackageManager;
 import android.content.pm.ResolveInfo;
 import android.net.Uri;
-import android.text.TextUtils;
 import android.util.Log;
 
+import androidx.annotation.VisibleForTesting;
+import androidx.core.content.ContextCompat;
+
+import org.chromium.customtabsdemos.core.PackageQueries;
+import org.chromium.customtabsdemos.core.ProviderSelector;
+
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Helper class for Custom Tabs.
@@ -36,7 +45,7 @@ public class CustomTabsHelper {
     private static final String TAG = "CustomTabsHelper";
     private static final boolean DEBUG = false;
 
-    private static final String DEFAULT_LOOKUP_DOMAIN = "http://www.example.com";
+    static final String DEFAULT_LOOKUP_DOMAIN = "http://www.example.com";
 
     static final String STABLE_PACKAGE = "com.android.chrome";
     static final String BETA_PACKAGE = "com.chrome.beta";
@@ -45,10 +54,19 @@ public class CustomTabsHelper {
 
     private static final String EXTRA_CUSTOM_TABS_KEEP_ALIVE =
             "android.support.customtabs.extra.KEEP_ALIVE";
-    private static final String ACTION_CUSTOM_TABS_CONNECTION =
+    static final String ACTION_CUSTOM_TABS_CONNECTION =
             "android.support.customtabs.action.CustomTabsService";
+    // How long a caller waits for a snapshot being loaded before querying the PackageManager.
+    private static final long SNAPSHOT_WAIT_MS = 500;
 
-    private static String sPackageNameToUse;
+    private static final Object sLock = new Object();
+    // Written under sLock, read without it on the fast path. Null until resolved.
+    private static volatile ProviderSnapshot sResolution;
+    // Bumped on every invalidation so that a resolution racing with a package change is dropped.
+    private static int sResolveGeneration;
+    // Set while loadSnapshot() reads and validates the snapshot, guarded by sLock.
+    private static CountDownLatch sSnapshotLoading;
+    private static boolean sPackageReceiverRegistered;
 
     private CustomTabsHelper() {}
 
@@ -63,84 +81,274 @@ public class CustomTabsHelper {
      * the one chosen by the user if there is one, otherwise makes a best effort to return a
      * valid package name.
      *
-     * This is <strong>not</strong> threadsafe.
+     * This is threadsafe. The result is cached until a package is added, removed or changed, so
+     * only the first call after such a change pays for the PackageManager queries.
      *
      * @param context {@link Context} to use for accessing {@link PackageManager}.
      * @return The package name recommended to use for connecting to custom tabs related components.
      */
     public static String getPackageNameToUse(Context context) {
-        logd("getPacageNameToUse packageName=" + sPackageNameToUse);
-        if (sPackageNameToUse != null) return sPackageNameToUse;
-
-        PackageManager pm = context.getPackageManager();
-        // Get default VIEW intent handler.
-        Intent activityIntent = new Intent(Intent.ACTION_VIEW, Uri.parse(DEFAULT_LOOKUP_DOMAIN));
-        ResolveInfo defaultViewHandlerInfo = pm.resolveActivity(activityIntent, MATCH_DEFAULT_ONLY);
-        String defaultViewHandlerPackageName = null;
-        if (defaultViewHandlerInfo != null) {
-            defaultViewHandlerPackageName = defaultViewHandlerInfo.activityInfo.packageName;
-            log("getPacageNameToUse defaultPackageName=" + defaultViewHandlerPackageName);
-        } else {
-            loge("getPackageNameToUse not found default View handler");
-            ComponentName cn = activityIntent.resolveActivity(pm);
-            loge("getPackageNameToUse cm=" + cn);
-        }
-
-        // Get all apps that can handle VIEW intents.
-        List<ResolveInfo> resolvedActivityList = pm.queryIntentActivities(activityIntent, 0);
-        List<String> packagesSupportingCustomTabs = new ArrayList<>();
-        for (ResolveInfo info : resolvedActivityList) {
-            Intent serviceIntent = new Intent();
-            serviceIntent.setAction(ACTION_CUSTOM_TABS_CONNECTION);
-            serviceIntent.setPackage(info.activityInfo.packageName);
-            if (pm.resolveService(serviceIntent, 0) != null) {
-                packagesSupportingCustomTabs.add(info.activityInfo.packageName);
+        ProviderSnapshot resolution = sResolution;
+        if (resolution != null) {
+            logd("getPacageNameToUse cached packageName=" + resolution.mPackageNameToUse);
+            return resolution.mPackageNameToUse;
+        }
+
+        // A snapshot being loaded is cheaper to wait for than a full resolution.
+        CountDownLatch snapshotLoading;
+        synchronized (sLock) {
+            snapshotLoading = sSnapshotLoading;
+        }
+        if (snapshotLoading != null) {
+            try {
+                snapshotLoading.await(SNAPSHOT_WAIT_MS, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        int generation;
+        synchronized (sLock) {
+            if (sResolution != null) return sResolution.mPackageNameToUse;
+            registerPackageReceiver(context);
+            generation = sResolveGeneration;
+        }
+
+        // Resolve outside the lock so that a slow PackageManager never blocks the fast path.
+        resolution = queryPackageNameToUse(context);
+
+        synchronized (sLock) {
+            if (generation == sResolveGeneration) {
+                sResolution = resolution;
+                resolution.save(context);
+            }
+        }
+        return resolution.mPackageNameToUse;
+    }
+
+    /**
+     * Adopts the resolution persisted by an earlier process, if it still matches the device, so
+     * that {@link #getPackageNameToUse(Context)} does not have to query the PackageManager. Reads
+     * the disk, so must be called on a background thread, e.g. by {@link CustomTabsPrewarmer}.
+     *
+     * <p>The validated snapshot is published right away, and callers of
+     * {@link #getPackageNameToUse(Context)} wait for it briefly. It is reranked once the persisted
+     * scores have been read.
+     */
+    static void loadSnapshot(Context context) {
+        int generation;
+        CountDownLatch loading = new CountDownLatch(1);
+        synchronized (sLock) {
+            if (sResolution != null || sSnapshotLoading != null) return;
+            registerPackageReceiver(context);
+            generation = sResolveGeneration;
+            sSnapshotLoading = loading;
+        }
+
+        ProviderSnapshot snapshot;
+        try {
+            snapshot = ProviderSnapshot.load(context);
+            synchronized (sLock) {
+                if (snapshot == null || generation != sResolveGeneration
+                        || sResolution != null) {
+                    return;
+                }
+                sResolution = snapshot;
             }
+            logd("loadSnapshot packageName=" + snapshot.mPackageNameToUse);
+        } finally {
+            synchronized (sLock) {
+                sSnapshotLoading = null;
+            }
+            loading.countDown();
+        }
+
+        // Ranking needs the persisted scores, which may still be being read.
+        ProviderScoreboard.getInstance(context).awaitLoaded();
+        ProviderSnapshot resolution = rerank(context, snapshot);
+        if (resolution == snapshot) return;
+        synchronized (sLock) {
+            if (generation != sResolveGeneration || sResolution != snapshot) return;
+            sResolution = resolution;
+            resolution.save(context);
         }
+    }
 
-        // Now packagesSupportingCustomTabs contains all apps that can handle both VIEW intents
-        // and service calls. Prefer the default browser if it supports Custom Tabs.
-        if (packagesSupportingCustomTabs.isEmpty()) {
+    /**
+     * Drops the cached package name and its persisted snapshot, so that the next
+     * {@link #getPackageNameToUse(Context)} call queries the PackageManager again.
+     */
+    public static void invalidatePackageNameToUse(Context context) {
+        synchronized (sLock) {
+            sResolveGeneration++;
+            sResolution = null;
+            ProviderSnapshot.clear(context);
+        }
+        logd("invalidatePackageNameToUse");
+    }
+
+    /**
+     * Runs the full provider resolution against the PackageManager, bypassing every cache.
+     */
+    @VisibleForTesting
+    static ProviderSnapshot queryPackageNameToUse(Context context) {
+        PackageManagerQueries queries = new PackageManagerQueries(context.getPackageManager());
+        ProviderSelector.Selection selection = ProviderSelector.select(
+                queries, ProviderScoreboard.getInstance(context).getRanking());
+        String packageNameToUse = selection.getPackageNameToUse();
+        if (packageNameToUse == null) {
             loge("getPacageNameToUse package not found");
-            sPackageNameToUse = null;
-        } else if (!TextUtils.isEmpty(defaultViewHandlerPackageName)
-                && !hasSpecializedHandlerIntents(context, activityIntent)
-                && packagesSupportingCustomTabs.contains(defaultViewHandlerPackageName)) {
-            sPackageNameToUse = defaultViewHandlerPackageName;
+        } else if (selection.isDefaultViewHandler()) {
             loge("getPacageNameToUse use default package");
         } else {
-            // Otherwise, pick the next favorite Custom Tabs provider.
-            sPackageNameToUse = packagesSupportingCustomTabs.get(0);
-            loge("getPacageNameToUse next favorite provider=" + sPackageNameToUse);
+            loge("getPacageNameToUse next favorite provider=" + packageNameToUse);
         }
-        return sPackageNameToUse;
+        return new ProviderSnapshot(packageNameToUse, selection.getDefaultViewHandler(),
+                selection.getCandidates(), queries.getPackagesWithService());
     }
 
     /**
-     * Used to check whether there is a specialized handler for a given intent.
-     * @param intent The intent to check with.
-     * @return Whether there is a specialized handler for the given intent.
+     * Applies what has been learned about the providers since the snapshot was taken, without
+     * querying the PackageManager again.
      */
-    private static boolean hasSpecializedHandlerIntents(Context context, Intent intent) {
-        try {
-            PackageManager pm = context.getPackageManager();
-            List<ResolveInfo> handlers = pm.queryIntentActivities(
-                    intent,
-                    PackageManager.GET_RESOLVED_FILTER);
-            if (handlers.size() == 0) {
-                return false;
+    private static ProviderSnapshot rerank(Context context, ProviderSnapshot resolution) {
+        String packageNameToUse = resolution.mPackageNameToUse;
+        if (packageNameToUse == null || packageNameToUse.equals(resolution.mDefaultViewHandler)) {
+            return resolution;
+        }
+        ProviderSelector.Ranking ranking = ProviderScoreboard.getInstance(context).getRanking();
+        String ranked = ranking == null ? null : ranking.pick(resolution.mCandidates);
+        if (ranked == null || ranked.equals(packageNameToUse)
+                || !resolution.mCandidates.contains(ranked)) {
+            return resolution;
+        }
+        log("rerank " + packageNameToUse + " -> " + ranked);
+        return new ProviderSnapshot(ranked, resolution.mDefaultViewHandler,
+                resolution.mCandidates, resolution.mServicePackages);
+    }
+
+    /**
+     * Listens for package changes for the lifetime of the process, so that an uninstalled or
+     * updated browser never stays in the cache. Must be called with sLock held.
+     */
+    private static void registerPackageReceiver(Context context) {
+        if (sPackageReceiverRegistered) return;
+        IntentFilter filter = new IntentFilter();
+        filter.addAction(Intent.ACTION_PACKAGE_ADDED);
+        filter.addAction(Intent.ACTION_PACKAGE_REMOVED);
+        filter.addAction(Intent.ACTION_PACKAGE_CHANGED);
+        filter.addAction(Intent.ACTION_PACKAGE_REPLACED);
+        filter.addDataScheme("package");
+        ContextCompat.registerReceiver(context.getApplicationContext(), new PackageChangeReceiver(),
+                filter, ContextCompat.RECEIVER_NOT_EXPORTED);
+        sPackageReceiverRegistered = true;
+    }
+
+    /**
+     * Answers the {@link ProviderSelector} with a single query per kind of component.
+     */
+    private static class PackageManagerQueries implements PackageQueries {
+        private final PackageManager mPackageManager;
+        private final Intent mActivityIntent =
+                new Intent(Intent.ACTION_VIEW, Uri.parse(DEFAULT_LOOKUP_DOMAIN));
+        private Set<String> mPackagesWithService;
+
+        PackageManagerQueries(PackageManager packageManager) {
+            mPackageManager = packageManager;
+        }
+
+        @Override
+        public String getDefaultViewHandler() {
+            ResolveInfo defaultViewHandlerInfo =
+                    mPackageManager.resolveActivity(mActivityIntent, MATCH_DEFAULT_ONLY);
+            if (defaultViewHandlerInfo == null) {
+                loge("getPackageNameToUse not found default View handler");
+                ComponentName cn = mActivityIntent.resolveActivity(mPackageManager);
+                loge("getPackageNameToUse cm=" + cn);
+                return null;
             }
-            for (ResolveInfo resolveInfo : handlers) {
-                IntentFilter filter = resolveInfo.filter;
-                if (filter == null) continue;
-                if (filter.countDataAuthorities() == 0 || filter.countDataPaths() == 0) continue;
-                if (resolveInfo.activityInfo == null) continue;
-                return true;
+            String packageName = defaultViewHandlerInfo.activityInfo.packageName;
+            log("getPacageNameToUse defaultPackageName=" + packageName);
+            return packageName;
+        }
+
+        @Override
+        public List<ResolvedViewHandler> getViewHandlers() {
+            // The filters are kept so that specialized handlers can be detected without querying
+            // the PackageManager a second time.
+            List<ResolveInfo> resolvedActivityList = mPackageManager.queryIntentActivities(
+                    mActivityIntent, PackageManager.GET_RESOLVED_FILTER);
+            List<ResolvedViewHandler> handlers = new ArrayList<>(resolvedActivityList.size());
+            for (ResolveInfo info : resolvedActivityList) {
+                handlers.add(new ResolvedViewHandler(info));
             }
-        } catch (RuntimeException e) {
-            Log.e(TAG, "Runtime exception while getting specialized handlers");
+            return handlers;
+        }
+
+        @Override
+        public boolean hasCustomTabsService(String packageName) {
+            return getPackagesWithService().contains(packageName);
+        }
+
+        /**
+         * All apps that implement the Custom Tabs service are found in a single query, instead
+         * of resolving the service once per VIEW handler.
+         */
+        Set<String> getPackagesWithService() {
+            if (mPackagesWithService == null) {
+                mPackagesWithService = ProviderSnapshot.queryServicePackages(mPackageManager);
+            }
+            return mPackagesWithService;
         }
-        return false;
+    }
+
+    private static class ResolvedViewHandler implements PackageQueries.ViewHandler {
+        private final ResolveInfo mResolveInfo;
+
+        ResolvedViewHandler(ResolveInfo resolveInfo) {
+            mResolveInfo = resolveInfo;
+        }
+
+        @Override
+        public String getPackageName() {
+            return mResolveInfo.activityInfo.packageName;
+        }
+
+        /**
+         * A handler is specialized if its filter, queried with
+         * {@link PackageManager#GET_RESOLVED_FILTER}, has both authorities and paths.
+         */
+        @Override
+        public boolean isSpecialized() {
+            IntentFilter filter = mResolveInfo.filter;
+            if (filter == null) return false;
+            if (filter.countDataAuthorities() == 0 || filter.countDataPaths() == 0) return false;
+            return mResolveInfo.activityInfo != null;
+        }
+    }
+
+    /**
+     * @return The first Custom Tabs provider other than the one to use, or null if there is only
+     *         one. Used as the hot standby of {@link CustomTabsConnectionManager}.
+     */
+    public static String getStandbyPackageName(Context context) {
+        String packageNameToUse = getPackageNameToUse(context);
+        ProviderSnapshot resolution = sResolution;
+        if (packageNameToUse == null || resolution == null) return null;
+        for (String packageName : resolution.mCandidates) {
+            if (!packageName.equals(packageNameToUse)) return packageName;
+        }
+        return null;
+    }
+
+    /**
+     * @return The Custom Tabs providers that can open web links, in order of preference. Used to
+     *         probe their bind time for {@link ProviderScoreboard}.
+     */
+    public static List<String> getCandidatePackageNames(Context context) {
+        getPackageNameToUse(context);
+        ProviderSnapshot resolution = sResolution;
+        return resolution == null ? new ArrayList<>() : resolution.mCandidates;
     }
 
     /**
@@ -150,6 +358,20 @@ public class CustomTabsHelper {
         return new String[]{"", STABLE_PACKAGE, BETA_PACKAGE, DEV_PACKAGE, LOCAL_PACKAGE};
     }
 
+    private static class PackageChangeReceiver extends BroadcastReceiver {
+        @Override
+        public void onReceive(Context context, Intent intent) {
+            log("onReceive action=" + intent.getAction() + " data=" + intent.getData());
+            if (Intent.ACTION_PACKAGE_REMOVED.equals(intent.getAction())
+                    && !intent.getBooleanExtra(Intent.EXTRA_REPLACING, false)
+                    && intent.getData() != null) {
+                ProviderScoreboard.getInstance(context)
+                        .remove(intent.getData().getSchemeSpecificPart());
+            }
+            invalidatePackageNameToUse(context);
+        }
+    }
+
     private static void log(String msg) {
         Log.i(TAG, msg);
     }
@@ -0,0 +1,141 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsIntent;
+
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Keeps ready-made CustomTabsIntents, keyed by a fingerprint of everything they are built from.
+ *
+ * <p>Building an intent with icons and PendingIntents takes milliseconds, so templates are built
+ * on a background thread as soon as the options change. At launch the template for the current
+ * fingerprint is copied and only the URL is filled in, see
+ * {@link CustomTabActivityHelper#openCustomTabFromTemplate}. Templates must not be modified.
+ *
+ * <p>There is no explicit invalidation. The fingerprint covers the uiMode and density the icons
+ * and colors depend on, and an activity that does not handle configuration changes itself is
+ * recreated with a new cache when they change.
+ *
+ * <p>This is threadsafe.
+ */
+public class CustomTabsIntentCache {
+    private static final String TAG = "CustomTabsIntentCache";
+    private static final boolean DEBUG = false;
+
+    public static final int DEFAULT_MAX_TEMPLATES = 4;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private static final Executor sBuildExecutor = Executors.newSingleThreadExecutor();
+
+    /**
+     * Builds a template. Called on a background thread, or on the caller's thread on a miss.
+     */
+    public interface Factory {
+        CustomTabsIntent build();
+    }
+
+    private final Executor mExecutor;
+    // Fingerprint to template, least recently used first.
+    private final LinkedHashMap<Long, CustomTabsIntent> mTemplates;
+    private final Set<Long> mPending = new HashSet<>();
+
+    public CustomTabsIntentCache() {
+        this(sBuildExecutor, DEFAULT_MAX_TEMPLATES);
+    }
+
+    public CustomTabsIntentCache(Executor executor, int maxTemplates) {
+        mExecutor = executor;
+        mTemplates = new LinkedHashMap<Long, CustomTabsIntent>(maxTemplates * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, CustomTabsIntent> eldest) {
+                return size() > maxTemplates;
+            }
+        };
+    }
+
+    /**
+     * Builds the template in the background, unless it is cached or already being built.
+     */
+    public void prepare(long fingerprint, Factory factory) {
+        synchronized (this) {
+            if (mTemplates.containsKey(fingerprint) || !mPending.add(fingerprint)) return;
+        }
+        logd("prepare fingerprint=" + Long.toHexString(fingerprint));
+        mExecutor.execute(() -> {
+            CustomTabsIntent template = null;
+            try {
+                template = factory.build();
+            } finally {
+                // Also when the build throws, so that a later prepare() may try again.
+                synchronized (this) {
+                    mPending.remove(fingerprint);
+                    if (template != null) mTemplates.put(fingerprint, template);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return The template for the fingerprint, built on the calling thread if it is not ready.
+     */
+    public CustomTabsIntent get(long fingerprint, Factory factory) {
+        CustomTabsIntent template = getIfReady(fingerprint);
+        if (template != null) return template;
+
+        logd("get miss fingerprint=" + Long.toHexString(fingerprint));
+        template = factory.build();
+        synchronized (this) {
+            mTemplates.put(fingerprint, template);
+        }
+        return template;
+    }
+
+    /**
+     * @return The template for the fingerprint, or null if it has not been built yet.
+     */
+    @Nullable
+    public synchronized CustomTabsIntent getIfReady(long fingerprint) {
+        return mTemplates.get(fingerprint);
+    }
+
+    /**
+     * @return A 64-bit FNV-1a hash of the values.
+     */
+    public static long fingerprint(int... values) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int value : values) {
+            for (int shift = 0; shift < 32; shift += 8) {
+                hash ^= (value >>> shift) & 0xff;
+                hash *= FNV_PRIME;
+            }
+        }
+        return hash;
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
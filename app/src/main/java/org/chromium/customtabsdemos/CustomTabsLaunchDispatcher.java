@@ -0,0 +1,291 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.net.Uri;
+import android.os.SystemClock;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsIntent;
+import androidx.browser.customtabs.CustomTabsSession;
+import androidx.core.content.ContextCompat;
+
+import org.chromium.customtabsdemos.CustomTabActivityHelper.CustomTabFallback;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Launches Custom Tabs for a {@link CustomTabActivityHelper}, holding a launch for a short window
+ * when the session is not ready yet.
+ *
+ * <p>A tap made while the service is still connecting waits up to {@link #DEFAULT_WINDOW_MS} for
+ * the session, so that the launch benefits from warmup and prefetch. After the deadline it
+ * launches without a session. A repeated tap on the same URL while a launch is pending is dropped.
+ * When given a {@link CustomTabFallback}, it opens the fallback instead if there is no provider
+ * or the session misses the budget. How often each path is taken, and how long the decision took,
+ * is recorded in {@link Stats}.
+ *
+ * <p>Must be used on the main thread.
+ */
+public class CustomTabsLaunchDispatcher {
+    private static final String TAG = "CustomTabsLaunchDispatcher";
+    private static final boolean DEBUG = false;
+
+    public static final long DEFAULT_WINDOW_MS = 150;
+
+    /**
+     * Builds the launch intent once it is known whether there is a session. The intent is copied
+     * before the launch, so it may be a cached template. Unless it names a package, the copy is
+     * sent to the provider the helper is connected to.
+     */
+    public interface IntentFactory {
+        CustomTabsIntent create(@Nullable CustomTabsSession session);
+    }
+
+    private final CustomTabActivityHelper mHelper;
+    private long mWindowMs = DEFAULT_WINDOW_MS;
+
+    @Nullable
+    private Uri mPendingUri;
+    @Nullable
+    private CompletableFuture<CustomTabsSession> mPendingSession;
+
+    public CustomTabsLaunchDispatcher(CustomTabActivityHelper helper) {
+        mHelper = helper;
+    }
+
+    /**
+     * Sets how long a launch may wait for the session.
+     */
+    public void setWindowMs(long windowMs) {
+        mWindowMs = windowMs;
+    }
+
+    /**
+     * Launches the Uri now if there is a session or no connection at all, otherwise as soon as the
+     * session is ready or the window expires.
+     *
+     * @param activity the host activity.
+     * @param uri the Uri to be opened.
+     * @param launchType the {@link LaunchLatencyTracker} launch type.
+     * @param intentFactory builds the intent for the session the launch ends up with.
+     */
+    public void launch(Activity activity, Uri uri, int launchType, IntentFactory intentFactory) {
+        launch(activity, uri, launchType, mWindowMs, null, intentFactory);
+    }
+
+    /**
+     * Like {@link #launch(Activity, Uri, int, IntentFactory)}, but opens the fallback instead when
+     * there is no Custom Tabs provider, or when the session is not ready within the budget. The
+     * user never waits longer than the budget for something to open.
+     *
+     * @param budgetMs how long the launch may wait for the session.
+     * @param fallback opens the Uri without Custom Tabs, or null to launch without a session.
+     */
+    public void launch(Activity activity, Uri uri, int launchType, long budgetMs,
+            @Nullable CustomTabFallback fallback, IntentFactory intentFactory) {
+        if (mPendingSession != null) {
+            if (uri.equals(mPendingUri)) {
+                logd("launch collapsed uri=" + uri);
+                Stats.sCollapsed.incrementAndGet();
+                return;
+            }
+            // The user tapped another link; only the latest one is launched.
+            Stats.sCollapsed.incrementAndGet();
+            cancelPending();
+        }
+
+        final long startMs = SystemClock.uptimeMillis();
+        if (fallback != null && CustomTabsHelper.getPackageNameToUse(activity) == null) {
+            Stats.sFallbackNoProvider.incrementAndGet();
+            Stats.recordDecisionMs(SystemClock.uptimeMillis() - startMs);
+            log("launch fallback, no provider");
+            fallback.openUri(activity, uri);
+            return;
+        }
+
+        CustomTabsSession session = mHelper.getSession(null);
+        if (session != null) {
+            Stats.sImmediate.incrementAndGet();
+            Stats.recordDecisionMs(SystemClock.uptimeMillis() - startMs);
+            launchIntent(activity, uri, launchType, intentFactory.create(session), true);
+            return;
+        }
+
+        CompletableFuture<CustomTabsSession> future = mHelper.getSessionAsync(null, budgetMs);
+        mPendingUri = uri;
+        mPendingSession = future;
+        future.whenComplete((result, error) -> {
+            if (mPendingSession == future) {
+                mPendingUri = null;
+                mPendingSession = null;
+            }
+            Throwable cause = error instanceof CompletionException ? error.getCause() : error;
+            if (cause instanceof CancellationException) return;
+
+            long waitedMs = SystemClock.uptimeMillis() - startMs;
+            Stats.recordDecisionMs(waitedMs);
+            boolean fallBack = false;
+            if (result != null) {
+                Stats.sWaited.incrementAndGet();
+                Stats.sWaitedMs.addAndGet(waitedMs);
+            } else if (cause instanceof TimeoutException) {
+                Stats.sTimedOut.incrementAndGet();
+                fallBack = fallback != null;
+            } else {
+                Stats.sNoConnection.incrementAndGet();
+            }
+            if (activity.isDestroyed()) {
+                loge("launch dropped, activity destroyed");
+                Stats.sDropped.incrementAndGet();
+                return;
+            }
+            if (fallBack) {
+                log("launch fallback, no session after waitedMs=" + waitedMs);
+                Stats.sFallbackTimeout.incrementAndGet();
+                fallback.openUri(activity, uri);
+                return;
+            }
+            log("launch session=" + (result != null) + " waitedMs=" + waitedMs);
+            launchIntent(activity, uri, launchType, intentFactory.create(result), result != null);
+        });
+    }
+
+    private void launchIntent(Activity activity, Uri uri, int launchType,
+            CustomTabsIntent intent, boolean withSession) {
+        // What CustomTabsIntent#launchUrl does, on a copy.
+        Intent launch = new Intent(intent.intent);
+        if (launch.getPackage() == null) launch.setPackage(mHelper.getLaunchPackageName(activity));
+        launch.setData(uri);
+        IntentParcelBudget.onLaunch(launch);
+        LaunchLatencyTracker.getInstance().onLaunch(launchType, withSession, launch.getPackage());
+        ContextCompat.startActivity(activity, launch, intent.startAnimationBundle);
+    }
+
+    /**
+     * Drops the pending launch, if any.
+     */
+    public void cancelPending() {
+        if (mPendingSession == null) return;
+        CompletableFuture<CustomTabsSession> future = mPendingSession;
+        mPendingUri = null;
+        mPendingSession = null;
+        future.cancel(false);
+    }
+
+    /**
+     * Process-wide counters of the paths taken by launches.
+     */
+    public static final class Stats {
+        static final AtomicInteger sImmediate = new AtomicInteger();
+        static final AtomicInteger sWaited = new AtomicInteger();
+        static final AtomicLong sWaitedMs = new AtomicLong();
+        static final AtomicInteger sTimedOut = new AtomicInteger();
+        static final AtomicInteger sNoConnection = new AtomicInteger();
+        static final AtomicInteger sCollapsed = new AtomicInteger();
+        static final AtomicInteger sDropped = new AtomicInteger();
+        static final AtomicInteger sFallbackNoProvider = new AtomicInteger();
+        static final AtomicInteger sFallbackTimeout = new AtomicInteger();
+        static final LatencyHistogram sDecisionMs = new LatencyHistogram();
+
+        private Stats() {}
+
+        /** @return Launches that had a session right away. */
+        public static int getImmediateCount() {
+            return sImmediate.get();
+        }
+
+        /** @return Launches that got their session within the window. */
+        public static int getWaitedCount() {
+            return sWaited.get();
+        }
+
+        /** @return Total time spent waiting by the launches that got their session. */
+        public static long getWaitedMs() {
+            return sWaitedMs.get();
+        }
+
+        /** @return Launches that went out without a session after the window expired. */
+        public static int getTimedOutCount() {
+            return sTimedOut.get();
+        }
+
+        /** @return Launches that went out without a session because nothing was bound. */
+        public static int getNoConnectionCount() {
+            return sNoConnection.get();
+        }
+
+        /** @return Taps dropped because another launch was pending. */
+        public static int getCollapsedCount() {
+            return sCollapsed.get();
+        }
+
+        /** @return Launches dropped because the activity was gone once the session arrived. */
+        public static int getDroppedCount() {
+            return sDropped.get();
+        }
+
+        /** @return Launches sent to the fallback because there was no provider. */
+        public static int getFallbackNoProviderCount() {
+            return sFallbackNoProvider.get();
+        }
+
+        /** @return Launches sent to the fallback because the session was not ready in time. */
+        public static int getFallbackTimeoutCount() {
+            return sFallbackTimeout.get();
+        }
+
+        /** @return The time from the tap to the decision of what to open, in ms. */
+        public static LatencyHistogram.Snapshot getDecisionSnapshot() {
+            return sDecisionMs.snapshot();
+        }
+
+        static void recordDecisionMs(long decisionMs) {
+            sDecisionMs.record(decisionMs);
+        }
+
+        public static String dump() {
+            return "immediate=" + sImmediate.get()
+                    + " waited=" + sWaited.get() + " (" + sWaitedMs.get() + "ms)"
+                    + " timedOut=" + sTimedOut.get()
+                    + " noConnection=" + sNoConnection.get()
+                    + " collapsed=" + sCollapsed.get()
+                    + " dropped=" + sDropped.get()
+                    + " fallbackNoProvider=" + sFallbackNoProvider.get()
+                    + " fallbackTimeout=" + sFallbackTimeout.get()
+                    + " decision " + sDecisionMs.snapshot();
+        }
+    }
+
+    private static void log(String msg) {
+        Log.i(TAG, msg);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+
+    private static void loge(String msg) {
+        Log.e(TAG, msg);
+    }
+}
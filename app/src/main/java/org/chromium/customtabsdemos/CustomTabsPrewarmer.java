@@ -0,0 +1,102 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Build;
+import android.os.Looper;
+import android.os.Process;
+import android.util.Log;
+
+/**
+ * Warms up the Custom Tabs provider as soon as the process starts.
+ *
+ * <p>The provider is resolved on a background thread, and the service is bound the next time the
+ * main thread's message queue runs empty after that. This can happen before the first frame, e.g.
+ * while the main thread waits for vsync, but never in the middle of the work already queued for
+ * startup. This way the browser is usually warm by the time the user taps a link, without
+ * delaying the app's own startup much. If there is no provider, the {@link WebViewPool} of the
+ * fallback is filled instead.
+ */
+public final class CustomTabsPrewarmer {
+    private static final String TAG = "CustomTabsPrewarmer";
+
+    /**
+     * How long the prewarmed connection is kept if no screen acquires it.
+     */
+    public static final long DEFAULT_HOLD_MS = 30000;
+
+    /**
+     * Decides whether the process is likely to open a Custom Tab.
+     */
+    public interface Policy {
+        /**
+         * Called on the main thread from {@link Application#onCreate()}; must be cheap.
+         *
+         * @return true if the Custom Tabs service should be prewarmed.
+         */
+        boolean shouldPrewarm(Context context);
+    }
+
+    /**
+     * Only prewarms the app's main process, never its service or remote processes.
+     */
+    public static final Policy MAIN_PROCESS_POLICY = context -> {
+        // Before P there is no cheap way to get the process name, and this app has only one.
+        if (Build.VERSION.SDK_INT < Build.VERSION_CODES.P) return true;
+        return context.getPackageName().equals(Application.getProcessName());
+    };
+
+    private static boolean sStarted;
+
+    private CustomTabsPrewarmer() {}
+
+    /**
+     * Starts prewarming if the policy allows it. Call from {@link Application#onCreate()}.
+     */
+    public static void start(Application application, Policy policy) {
+        if (sStarted) return;
+        if (!policy.shouldPrewarm(application)) {
+            log("start skipped by policy");
+            return;
+        }
+        sStarted = true;
+
+        Thread thread = new Thread(() -> {
+            // Reading the persisted resolution touches the disk, which is why it happens here. The
+            // main thread may be waiting for it, so only lower the priority afterwards.
+            CustomTabsHelper.loadSnapshot(application);
+            Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+            String packageName = CustomTabsHelper.getPackageNameToUse(application);
+            log("start packageName=" + packageName);
+            if (packageName == null) {
+                // WebviewFallback will be used; have its WebViews ready instead.
+                WebViewPool.getInstance(application).prewarmOnIdle();
+                return;
+            }
+
+            Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+                CustomTabsConnectionManager.getInstance(application).prewarm(DEFAULT_HOLD_MS);
+                return false;
+            });
+        }, TAG);
+        thread.start();
+    }
+
+    private static void log(String msg) {
+        Log.i(TAG, msg);
+    }
+}
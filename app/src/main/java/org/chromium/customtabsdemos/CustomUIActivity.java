@@ -14,28 +14,32 @@
 package org.chromium.customtabsdemos;
 
 import android.app.PendingIntent;
-import android.content.Intent;
+import android.content.res.Configuration;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
-import android.graphics.Canvas;
 import android.graphics.Color;
-import android.graphics.Rect;
-import android.graphics.drawable.Drawable;
 import android.net.Uri;
 import android.os.Bundle;
+import android.text.Editable;
+import android.text.TextWatcher;
 import android.util.Log;
 import android.view.View;
 import android.widget.CheckBox;
+import android.widget.CompoundButton;
 import android.widget.EditText;
 
+import androidx.annotation.Nullable;
 import androidx.appcompat.app.AppCompatActivity;
 import androidx.browser.customtabs.CustomTabColorSchemeParams;
 import androidx.browser.customtabs.CustomTabsIntent;
+import androidx.browser.customtabs.CustomTabsSession;
+
+import org.chromium.customtabsdemos.core.CustomUiOptions;
 
 /**
  * Opens Chrome Custom Tabs with a customized UI.
  */
-public class CustomUIActivity extends AppCompatActivity implements View.OnClickListener {
+public class CustomUIActivity extends AppCompatActivity
+        implements View.OnClickListener, CustomTabActivityHelper.ConnectionCallback {
     private static final String TAG = "CustChromeTabActivity";
 
     private static final int TOOLBAR_ITEM_ID = 1;
@@ -52,6 +56,10 @@ public class CustomUIActivity extends AppCompatActivity implements View.OnClickL
     private CheckBox mToolbarItemCheckbox;
 
     private CustomTabActivityHelper mCustomTabActivityHelper;
+    // Intents for the recent combinations of options, so that a tap only copies one.
+    private final CustomTabsIntentCache mIntentCache = new CustomTabsIntentCache();
+    private ToolbarIconCache mIconCache;
+    private boolean mConnected;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -59,6 +67,8 @@ public class CustomUIActivity extends AppCompatActivity implements View.OnClickL
         setContentView(R.layout.activity_custom_ui);
 
         mCustomTabActivityHelper = new CustomTabActivityHelper();
+        mIconCache = ToolbarIconCache.getInstance(this);
+        mIconCache.prefetch(android.R.drawable.ic_menu_share, R.drawable.ic_arrow_back);
         findViewById(R.id.start_custom_tab).setOnClickListener(this);
 
         mUrlEditText = findViewById(R.id.url);
@@ -71,20 +81,58 @@ public class CustomUIActivity extends AppCompatActivity implements View.OnClickL
         mAutoHideAppBarCheckbox = findViewById(R.id.auto_hide_checkbox);
         mAddDefaultShareCheckbox = findViewById(R.id.add_default_share);
         mToolbarItemCheckbox = findViewById(R.id.add_toolbar_item);
+
+        // Rebuilds the template in the background as soon as an option changes.
+        CompoundButton.OnCheckedChangeListener checkedChangeListener =
+                (button, isChecked) -> prepareTemplate();
+        for (CheckBox checkBox : new CheckBox[] {mShowActionButtonCheckbox, mAddMenusCheckbox,
+                mShowTitleCheckBox, mCustomBackButtonCheckBox, mAutoHideAppBarCheckbox,
+                mAddDefaultShareCheckbox, mToolbarItemCheckbox}) {
+            checkBox.setOnCheckedChangeListener(checkedChangeListener);
+        }
+        TextWatcher colorWatcher = new TextWatcher() {
+            @Override
+            public void beforeTextChanged(CharSequence s, int start, int count, int after) {}
+
+            @Override
+            public void onTextChanged(CharSequence s, int start, int before, int count) {}
+
+            @Override
+            public void afterTextChanged(Editable s) {
+                prepareTemplate();
+            }
+        };
+        mCustomTabColorEditText.addTextChangedListener(colorWatcher);
+        mCustomTabSecondaryColorEditText.addTextChangedListener(colorWatcher);
     }
 
     @Override
     protected void onStart() {
         super.onStart();
+        mCustomTabActivityHelper.setConnectionCallback(this);
         if (!mCustomTabActivityHelper.bindCustomTabsService(this)) {
             // Failed to request binding service.
         }
+        prepareTemplate();
     }
 
     @Override
     protected void onStop() {
         super.onStop();
+        mCustomTabActivityHelper.setConnectionCallback(null);
         mCustomTabActivityHelper.unbindCustomTabsService(this);
+        mConnected = false;
+    }
+
+    @Override
+    public void onCustomTabsConnected() {
+        mConnected = true;
+        prepareTemplate();
+    }
+
+    @Override
+    public void onCustomTabsDisconnected() {
+        mConnected = false;
     }
 
     @Override
@@ -106,85 +154,152 @@ public class CustomUIActivity extends AppCompatActivity implements View.OnClickL
     private void openCustomTab() {
         String url = mUrlEditText.getText().toString();
 
-        int color = getColor(mCustomTabColorEditText);
-        int secondaryColor = getColor(mCustomTabSecondaryColorEditText);
+        Uri uri = Uri.parse(url);
+        CustomUiOptions options = readOptions();
+        CustomTabsSession session = getSession();
+        CustomTabsIntent template =
+                session == null ? null : mIntentCache.getIfReady(fingerprint(options, session));
+        if (template != null
+                && mCustomTabActivityHelper.openCustomTabFromTemplate(this, template, uri)) {
+            return;
+        }
+        // Without a prepared template or a session, the dispatcher waits briefly for the session
+        // and builds the template for it, or opens the fallback when there is no provider.
+        mCustomTabActivityHelper.openCustomTab(this, uri, new WebviewFallback(),
+                CustomTabsLaunchDispatcher.DEFAULT_WINDOW_MS,
+                s -> mIntentCache.get(fingerprint(options, s), () -> buildTemplate(options, s)));
+    }
+
+    /**
+     * Builds the template for the current options in the background.
+     */
+    private void prepareTemplate() {
+        CustomUiOptions options = readOptions();
+        CustomTabsSession session = getSession();
+        mIntentCache.prepare(fingerprint(options, session), () -> buildTemplate(options, session));
+    }
+
+    @Nullable
+    private CustomTabsSession getSession() {
+        return mConnected ? mCustomTabActivityHelper.getSession(null) : null;
+    }
+
+    private CustomUiOptions readOptions() {
+        int flags = 0;
+        if (mShowActionButtonCheckbox.isChecked()) flags |= CustomUiOptions.FLAG_ACTION_BUTTON;
+        if (mAddMenusCheckbox.isChecked()) flags |= CustomUiOptions.FLAG_MENU_ITEM;
+        if (mAddDefaultShareCheckbox.isChecked()) flags |= CustomUiOptions.FLAG_DEFAULT_SHARE;
+        if (mToolbarItemCheckbox.isChecked()) flags |= CustomUiOptions.FLAG_TOOLBAR_ITEM;
+        if (mCustomBackButtonCheckBox.isChecked()) {
+            flags |= CustomUiOptions.FLAG_CUSTOM_CLOSE_BUTTON;
+        }
+        if (mShowTitleCheckBox.isChecked()) flags |= CustomUiOptions.FLAG_SHOW_TITLE;
+        if (mAutoHideAppBarCheckbox.isChecked()) {
+            flags |= CustomUiOptions.FLAG_HIDE_URL_BAR_ON_SCROLL;
+        }
+        return new CustomUiOptions(flags, getColor(mCustomTabColorEditText),
+                getColor(mCustomTabSecondaryColorEditText));
+    }
+
+    /**
+     * @return A fingerprint of everything a template is built from.
+     */
+    private long fingerprint(CustomUiOptions options, @Nullable CustomTabsSession session) {
+        Configuration configuration = getResources().getConfiguration();
+        return CustomTabsIntentCache.fingerprint(options.getFlags(), options.getToolbarColor(),
+                options.getSecondaryToolbarColor(), configuration.uiMode,
+                configuration.densityDpi,
+                session == null ? 0 : System.identityHashCode(session));
+    }
+
+    /**
+     * Builds the intent for the options, without a URL. May be called on any thread.
+     */
+    private CustomTabsIntent buildTemplate(CustomUiOptions options,
+            @Nullable CustomTabsSession session) {
+        CustomTabsIntent.Builder intentBuilder = new CustomTabsIntent.Builder(session);
+        options.applyTo(new IntentBuilderTarget(intentBuilder));
+        intentBuilder.setStartAnimations(this, R.anim.slide_in_right, R.anim.slide_out_left);
+        intentBuilder.setExitAnimations(this, android.R.anim.slide_in_left,
+                android.R.anim.slide_out_right);
+        CustomTabsIntent customTabsIntent = intentBuilder.build();
+        // Shrinks the icons here, in the background, so that the launch only measures the copy.
+        IntentParcelBudget.shrinkToFit(customTabsIntent.intent,
+                IntentParcelBudget.DEFAULT_BUDGET_BYTES);
+        return customTabsIntent;
+    }
+
+    /**
+     * Maps the options onto the builder, with the resources of this activity.
+     */
+    private class IntentBuilderTarget implements CustomUiOptions.Target {
+        private final CustomTabsIntent.Builder mIntentBuilder;
 
-        CustomTabsIntent.Builder intentBuilder = new CustomTabsIntent.Builder();
-        CustomTabColorSchemeParams defaultColors = new CustomTabColorSchemeParams.Builder()
-                .setToolbarColor(color)
-                .setSecondaryToolbarColor(secondaryColor)
-                .build();
-        intentBuilder.setDefaultColorSchemeParams(defaultColors);
+        IntentBuilderTarget(CustomTabsIntent.Builder intentBuilder) {
+            mIntentBuilder = intentBuilder;
+        }
+
+        @Override
+        public void setToolbarColors(int toolbarColor, int secondaryToolbarColor) {
+            CustomTabColorSchemeParams defaultColors = new CustomTabColorSchemeParams.Builder()
+                    .setToolbarColor(toolbarColor)
+                    .setSecondaryToolbarColor(secondaryToolbarColor)
+                    .build();
+            mIntentBuilder.setDefaultColorSchemeParams(defaultColors);
+        }
 
-        if (mShowActionButtonCheckbox.isChecked()) {
-            //Generally you do not want to decode bitmaps in the UI thread. Decoding it in the
-            //UI thread to keep the example short.
+        @Override
+        public void addActionButton() {
             String actionLabel = getString(R.string.label_action);
-            Bitmap icon = BitmapFactory.decodeResource(getResources(),
-                    android.R.drawable.ic_menu_share);
+            Bitmap icon = mIconCache.get(android.R.drawable.ic_menu_share);
             PendingIntent pendingIntent =
                     createPendingIntent(ActionBroadcastReceiver.ACTION_ACTION_BUTTON);
-            intentBuilder.setActionButton(icon, actionLabel, pendingIntent);
+            mIntentBuilder.setActionButton(icon, actionLabel, pendingIntent);
         }
 
-        if (mAddMenusCheckbox.isChecked()) {
+        @Override
+        public void addMenuItem() {
             String menuItemTitle = getString(R.string.menu_item_title);
             PendingIntent menuItemPendingIntent =
                     createPendingIntent(ActionBroadcastReceiver.ACTION_MENU_ITEM);
-            intentBuilder.addMenuItem(menuItemTitle, menuItemPendingIntent);
+            mIntentBuilder.addMenuItem(menuItemTitle, menuItemPendingIntent);
         }
 
-        int shareState = mAddDefaultShareCheckbox.isChecked() ?
-                CustomTabsIntent.SHARE_STATE_ON : CustomTabsIntent.SHARE_STATE_OFF;
-        intentBuilder.setShareState(shareState);
+        @Override
+        public void setDefaultShareEnabled(boolean enabled) {
+            mIntentBuilder.setShareState(enabled
+                    ? CustomTabsIntent.SHARE_STATE_ON : CustomTabsIntent.SHARE_STATE_OFF);
+        }
 
-        if (mToolbarItemCheckbox.isChecked()) {
-            //Generally you do not want to decode bitmaps in the UI thread. Decoding it in the
-            //UI thread to keep the example short.
+        @Override
+        public void addToolbarItem() {
             String actionLabel = getString(R.string.label_action);
-            Bitmap icon = BitmapFactory.decodeResource(getResources(),
-                    android.R.drawable.ic_menu_share);
+            Bitmap icon = mIconCache.get(android.R.drawable.ic_menu_share);
             PendingIntent pendingIntent =
                     createPendingIntent(ActionBroadcastReceiver.ACTION_TOOLBAR);
-            intentBuilder.addToolbarItem(TOOLBAR_ITEM_ID, icon, actionLabel, pendingIntent);
+            mIntentBuilder.addToolbarItem(TOOLBAR_ITEM_ID, icon, actionLabel, pendingIntent);
         }
 
-        if (mCustomBackButtonCheckBox.isChecked()) {
-            intentBuilder.setCloseButtonIcon(toBitmap(getDrawable(R.drawable.ic_arrow_back)));
+        @Override
+        public void setCustomCloseButton() {
+            mIntentBuilder.setCloseButtonIcon(mIconCache.get(R.drawable.ic_arrow_back));
         }
 
-        intentBuilder.setShowTitle(mShowTitleCheckBox.isChecked());
-        intentBuilder.setUrlBarHidingEnabled(mAutoHideAppBarCheckbox.isChecked());
-        intentBuilder.setStartAnimations(this, R.anim.slide_in_right, R.anim.slide_out_left);
-        intentBuilder.setExitAnimations(this, android.R.anim.slide_in_left,
-                android.R.anim.slide_out_right);
+        @Override
+        public void setShowTitle(boolean showTitle) {
+            mIntentBuilder.setShowTitle(showTitle);
+        }
 
-        mCustomTabActivityHelper.openCustomTab(
-                this, intentBuilder.build(), Uri.parse(url));
+        @Override
+        public void setUrlBarHidingEnabled(boolean enabled) {
+            mIntentBuilder.setUrlBarHidingEnabled(enabled);
+        }
     }
 
     private PendingIntent createPendingIntent(int actionSourceId) {
-        Intent actionIntent = new Intent(
-                this.getApplicationContext(), ActionBroadcastReceiver.class);
-        actionIntent.putExtra(ActionBroadcastReceiver.KEY_ACTION_SOURCE, actionSourceId);
-        return PendingIntent.getBroadcast(
-                getApplicationContext(), actionSourceId, actionIntent, PendingIntent.FLAG_MUTABLE);
-    }
-
-    /**
-     * Return a Bitmap representation of the Drawable. Based on Android KTX.
-     */
-    private Bitmap toBitmap(Drawable drawable) {
-        int width = drawable.getIntrinsicWidth();
-        int height = drawable.getIntrinsicHeight();
-        Rect oldBounds = new Rect(drawable.getBounds());
-
-        Bitmap bitmap = Bitmap.createBitmap(width, height, Bitmap.Config.ARGB_8888);
-        drawable.setBounds(0, 0, width, height);
-        drawable.draw(new Canvas(bitmap));
-
-        drawable.setBounds(oldBounds);
-        return bitmap;
+        // Mutable, so that the browser can fill in the URL of the tab.
+        return PendingIntentPool.getInstance(this)
+                .getActionBroadcast(actionSourceId, PendingIntent.FLAG_MUTABLE);
     }
 
     private static void log(String msg) {
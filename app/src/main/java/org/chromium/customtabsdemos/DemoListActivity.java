@@ -72,6 +72,11 @@ public class DemoListActivity extends AppCompatActivity {
                 CustomUIActivity.class);
         activityDescList.add(activityDesc);
 
+        activityDesc = createActivityDesc(R.string.title_activity_link_list,
+                R.string.description_activity_link_list,
+                LinkListActivity.class);
+        activityDescList.add(activityDesc);
+
         RecyclerView recyclerView = findViewById(android.R.id.list);
         recyclerView.setAdapter(listAdapter);
         recyclerView.setLayoutManager(new LinearLayoutManager(this));
@@ -0,0 +1,382 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+
+/**
+ * An append-only log of engagement and navigation events, stored in memory-mapped segment files.
+ *
+ * <p>Every event is a fixed-size record of timestamp, session id, event type and value. Appending
+ * is a plain memory write into the mapped segment, followed by an update of the record count in
+ * the segment header, so a reader never sees a partial record. Segments are forced to disk in
+ * batches on the flush executor, without holding the lock appends need. The next segment is
+ * preallocated on the flush executor too, so a full segment is swapped for it in place, and the
+ * full segment is then forced, closed and the oldest segments deleted on the flush executor.
+ *
+ * <p>{@link Cursor} walks a segment in place, without creating an object per record.
+ *
+ * <p>This is threadsafe.
+ */
+public class EngagementEventStore implements Closeable {
+    /** Size of a record: timestamp (8), session id (4), type (4) and value (8). */
+    public static final int RECORD_SIZE = 24;
+    public static final int DEFAULT_RECORDS_PER_SEGMENT = 16384;
+    public static final int DEFAULT_MAX_SEGMENTS = 32;
+    public static final int DEFAULT_FLUSH_EVERY = 64;
+
+    private static final int MAGIC = 0x43544556;
+    private static final int VERSION = 1;
+    // magic (4), version (4), record count (4), reserved (4).
+    private static final int HEADER_SIZE = 16;
+    private static final int COUNT_OFFSET = 8;
+    private static final String SEGMENT_PREFIX = "events-";
+    private static final String SEGMENT_SUFFIX = ".seg";
+    // The preallocated next segment, renamed to its sequence when it is taken into use.
+    private static final String SPARE_NAME = "events.spare";
+
+    private final File mDirectory;
+    private final int mRecordsPerSegment;
+    private final int mMaxSegments;
+    private final int mFlushEvery;
+    private final Executor mFlushExecutor;
+    private final Runnable mFlushRunnable = this::flush;
+    private final Runnable mPreallocateRunnable = this::preallocate;
+
+    private long mSegmentSequence;
+    private RandomAccessFile mSegmentFile;
+    private MappedByteBuffer mSegment;
+    private int mCount;
+    private int mUnflushed;
+    private boolean mClosed;
+    private RandomAccessFile mSpareFile;
+    private MappedByteBuffer mSpare;
+
+    public EngagementEventStore(File directory, Executor flushExecutor) throws IOException {
+        this(directory, DEFAULT_RECORDS_PER_SEGMENT, DEFAULT_MAX_SEGMENTS, DEFAULT_FLUSH_EVERY,
+                flushExecutor);
+    }
+
+    /**
+     * Opens the store, appending to its newest segment if there is room left.
+     *
+     * @param recordsPerSegment records after which a new segment is started.
+     * @param maxSegments segments kept on disk; older ones are deleted.
+     * @param flushEvery appends after which the segment is forced to disk on flushExecutor.
+     */
+    public EngagementEventStore(File directory, int recordsPerSegment, int maxSegments,
+            int flushEvery, Executor flushExecutor) throws IOException {
+        mDirectory = directory;
+        mRecordsPerSegment = recordsPerSegment;
+        mMaxSegments = maxSegments;
+        mFlushEvery = flushEvery;
+        mFlushExecutor = flushExecutor;
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        List<File> segments = getSegments();
+        if (segments.isEmpty()) {
+            openSegment(0);
+        } else {
+            File newest = segments.get(segments.size() - 1);
+            openSegment(parseSequence(newest));
+            if (mCount >= mRecordsPerSegment) rotate();
+        }
+        mFlushExecutor.execute(mPreallocateRunnable);
+    }
+
+    /**
+     * Appends an event.
+     */
+    public synchronized void append(long timestampMs, int sessionId, int type, long value)
+            throws IOException {
+        if (mClosed) throw new IOException("Store closed");
+        if (mCount >= mRecordsPerSegment) rotate();
+
+        int offset = HEADER_SIZE + mCount * RECORD_SIZE;
+        mSegment.putLong(offset, timestampMs);
+        mSegment.putInt(offset + 8, sessionId);
+        mSegment.putInt(offset + 12, type);
+        mSegment.putLong(offset + 16, value);
+        // Publishing the count last keeps the record invisible until it is complete.
+        mCount++;
+        mSegment.putInt(COUNT_OFFSET, mCount);
+
+        if (++mUnflushed >= mFlushEvery) {
+            mUnflushed = 0;
+            mFlushExecutor.execute(mFlushRunnable);
+        }
+    }
+
+    /**
+     * Forces the appended events of the current segment to disk.
+     */
+    public void flush() {
+        MappedByteBuffer segment;
+        synchronized (this) {
+            if (mClosed) return;
+            segment = mSegment;
+            mUnflushed = 0;
+        }
+        // The mapping stays valid after a rotation closes its file, so forcing it outside the
+        // lock is safe and does not stall appends.
+        segment.force();
+    }
+
+    /**
+     * @return The segment files, oldest first.
+     */
+    public synchronized List<File> getSegments() {
+        File[] files = mDirectory.listFiles(
+                (dir, name) -> name.startsWith(SEGMENT_PREFIX) && name.endsWith(SEGMENT_SUFFIX));
+        if (files == null) return new ArrayList<>();
+        Arrays.sort(files, (a, b) -> Long.compare(parseSequence(a), parseSequence(b)));
+        return new ArrayList<>(Arrays.asList(files));
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (mClosed) return;
+        mSegment.force();
+        mSegmentFile.close();
+        if (mSpareFile != null) {
+            mSpareFile.close();
+            new File(mDirectory, SPARE_NAME).delete();
+            mSpareFile = null;
+            mSpare = null;
+        }
+        mClosed = true;
+    }
+
+    private void rotate() throws IOException {
+        final RandomAccessFile retiredFile = mSegmentFile;
+        final MappedByteBuffer retired = mSegment;
+        long sequence = mSegmentSequence + 1;
+        if (mSpare != null && new File(mDirectory, SPARE_NAME)
+                .renameTo(new File(mDirectory, segmentName(sequence)))) {
+            mSegmentSequence = sequence;
+            mSegmentFile = mSpareFile;
+            mSegment = mSpare;
+            mCount = 0;
+        } else {
+            // Nothing was preallocated yet, so the next segment has to be opened inline.
+            if (mSpareFile != null) mSpareFile.close();
+            openSegment(sequence);
+        }
+        mSpareFile = null;
+        mSpare = null;
+        mUnflushed = 0;
+
+        mFlushExecutor.execute(() -> {
+            retired.force();
+            try {
+                retiredFile.close();
+            } catch (IOException e) {
+                // The mapping has been forced, so nothing is lost.
+            }
+            prune();
+            preallocate();
+        });
+    }
+
+    private void prune() {
+        List<File> segments = getSegments();
+        for (int i = 0; i < segments.size() - mMaxSegments; i++) {
+            segments.get(i).delete();
+        }
+    }
+
+    /**
+     * Creates and maps the next segment ahead of time, so that a rotation does not have to.
+     */
+    private void preallocate() {
+        synchronized (this) {
+            if (mClosed || mSpare != null) return;
+        }
+        File file = new File(mDirectory, SPARE_NAME);
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "rw");
+            long size = HEADER_SIZE + (long) mRecordsPerSegment * RECORD_SIZE;
+            raf.setLength(size);
+            MappedByteBuffer spare = raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, size);
+            writeHeader(spare);
+            synchronized (this) {
+                if (!mClosed && mSpare == null) {
+                    mSpareFile = raf;
+                    mSpare = spare;
+                    return;
+                }
+            }
+            raf.close();
+        } catch (IOException e) {
+            // The next rotation opens its segment inline instead.
+            if (raf != null) {
+                try {
+                    raf.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+    }
+
+    private static void writeHeader(MappedByteBuffer segment) {
+        segment.putInt(0, MAGIC);
+        segment.putInt(4, VERSION);
+        segment.putInt(COUNT_OFFSET, 0);
+    }
+
+    private void openSegment(long sequence) throws IOException {
+        File file = new File(mDirectory, segmentName(sequence));
+        boolean created = !file.exists();
+        long size = HEADER_SIZE + (long) mRecordsPerSegment * RECORD_SIZE;
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            // An existing segment keeps its size, so that one written with a larger
+            // recordsPerSegment is not truncated.
+            long mappedSize = created ? size : Math.max(raf.length(), HEADER_SIZE);
+            MappedByteBuffer segment =
+                    raf.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, mappedSize);
+            int count;
+            if (created || segment.getInt(0) != MAGIC) {
+                writeHeader(segment);
+                count = 0;
+            } else {
+                count = segment.getInt(COUNT_OFFSET);
+            }
+            mSegmentSequence = sequence;
+            mSegmentFile = raf;
+            mSegment = segment;
+            // A segment smaller than expected is treated as full.
+            long capacity = (mappedSize - HEADER_SIZE) / RECORD_SIZE;
+            mCount = capacity < mRecordsPerSegment
+                    ? mRecordsPerSegment : (int) Math.min(Math.max(count, 0), capacity);
+        } catch (IOException e) {
+            raf.close();
+            throw e;
+        }
+    }
+
+    private static String segmentName(long sequence) {
+        return SEGMENT_PREFIX + String.format(Locale.US, "%010d", sequence)
+                + SEGMENT_SUFFIX;
+    }
+
+    private static long parseSequence(File segment) {
+        String name = segment.getName();
+        try {
+            return Long.parseLong(name.substring(
+                    SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Reads the records of one segment in place. Typical use:
+     * <pre>
+     * try (Cursor cursor = Cursor.open(segment)) {
+     *     while (cursor.next()) {
+     *         sum += cursor.getValue();
+     *     }
+     * }
+     * </pre>
+     */
+    public static final class Cursor implements Closeable {
+        private final RandomAccessFile mFile;
+        private final ByteBuffer mBuffer;
+        private final int mCount;
+        private int mIndex = -1;
+        private int mOffset;
+
+        private Cursor(RandomAccessFile file, ByteBuffer buffer, int count) {
+            mFile = file;
+            mBuffer = buffer;
+            mCount = count;
+        }
+
+        /**
+         * Maps a segment read-only. Records appended after this call are not visible.
+         */
+        public static Cursor open(File segment) throws IOException {
+            RandomAccessFile raf = new RandomAccessFile(segment, "r");
+            try {
+                ByteBuffer buffer =
+                        raf.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, raf.length());
+                if (raf.length() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+                    throw new IOException("Not an event segment: " + segment);
+                }
+                int count = (int) Math.min(buffer.getInt(COUNT_OFFSET),
+                        (raf.length() - HEADER_SIZE) / RECORD_SIZE);
+                return new Cursor(raf, buffer, count);
+            } catch (IOException e) {
+                raf.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return The number of records in the segment.
+         */
+        public int getCount() {
+            return mCount;
+        }
+
+        /**
+         * Moves to the next record.
+         *
+         * @return false once every record has been visited.
+         */
+        public boolean next() {
+            if (mIndex + 1 >= mCount) return false;
+            mIndex++;
+            mOffset = HEADER_SIZE + mIndex * RECORD_SIZE;
+            return true;
+        }
+
+        public long getTimestampMs() {
+            return mBuffer.getLong(mOffset);
+        }
+
+        public int getSessionId() {
+            return mBuffer.getInt(mOffset + 8);
+        }
+
+        public int getType() {
+            return mBuffer.getInt(mOffset + 12);
+        }
+
+        public long getValue() {
+            return mBuffer.getLong(mOffset + 16);
+        }
+
+        @Override
+        public void close() throws IOException {
+            mFile.close();
+        }
+    }
+}
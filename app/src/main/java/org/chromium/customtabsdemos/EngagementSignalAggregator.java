@@ -0,0 +1,207 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.Choreographer;
+
+/**
+ * Collects engagement signals without allocating, and publishes them at most once per frame.
+ *
+ * <p>Signals can arrive at a high rate during flings, while the host screen stays visible behind
+ * a partial Custom Tab. Each signal is written into preallocated primitive arrays used as a ring
+ * buffer, and the latest state is kept in plain fields. A single {@link Choreographer} frame
+ * callback then tells the {@link Listener} that something changed.
+ *
+ * <p>Signals may be recorded from any thread. It must be created on, and the listener is called
+ * on, the main thread.
+ */
+public class EngagementSignalAggregator {
+    private static final String TAG = "EngagementSignalAggregator";
+    private static final boolean DEBUG = false;
+
+    public static final int TYPE_VERTICAL_SCROLL = 1;
+    public static final int TYPE_GREATEST_SCROLL_PERCENTAGE = 2;
+    public static final int TYPE_SESSION_ENDED = 3;
+    public static final int TYPE_RESET = 4;
+
+    // Must be a power of two.
+    private static final int DEFAULT_CAPACITY = 64;
+
+    /**
+     * Called on the main thread, at most once per frame, when signals have been recorded.
+     */
+    public interface Listener {
+        void onEngagementSignalsChanged(EngagementSignalAggregator aggregator);
+    }
+
+    /**
+     * Visits buffered events, see {@link #drain(EventVisitor)}.
+     */
+    public interface EventVisitor {
+        void visit(long uptimeMillis, int type, int value);
+    }
+
+    private final Object mLock = new Object();
+    private final Choreographer mChoreographer = Choreographer.getInstance();
+    private final Choreographer.FrameCallback mFrameCallback = this::onFrame;
+    private final Listener mListener;
+
+    private final int mMask;
+    private final long[] mTimes;
+    private final int[] mTypes;
+    private final int[] mValues;
+    // Number of events ever recorded and ever drained; the difference is in the ring buffer.
+    private long mWritten;
+    private long mRead;
+
+    private boolean mFramePending;
+    // Latest state, guarded by mLock.
+    private int mVerticalScrollCount;
+    private boolean mLastScrollUp;
+    private int mGreatestScrollPercentage = -1;
+    private int mSessionEnded = -1;
+
+    public EngagementSignalAggregator(Listener listener) {
+        this(listener, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param capacity size of the ring buffer, rounded up to a power of two. Older events are
+     *                 overwritten if it is not drained in time.
+     */
+    public EngagementSignalAggregator(Listener listener, int capacity) {
+        mListener = listener;
+        int size = Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1;
+        mMask = size - 1;
+        mTimes = new long[size];
+        mTypes = new int[size];
+        mValues = new int[size];
+    }
+
+    public void recordVerticalScroll(boolean isDirectionUp) {
+        record(TYPE_VERTICAL_SCROLL, isDirectionUp ? 1 : 0);
+    }
+
+    public void recordGreatestScrollPercentage(int scrollPercentage) {
+        record(TYPE_GREATEST_SCROLL_PERCENTAGE, scrollPercentage);
+    }
+
+    public void recordSessionEnded(boolean didUserInteract) {
+        record(TYPE_SESSION_ENDED, didUserInteract ? 1 : 0);
+    }
+
+    /**
+     * Clears the scroll direction and percentage, e.g. when a new navigation starts.
+     */
+    public void reset() {
+        record(TYPE_RESET, 0);
+    }
+
+    private void record(int type, int value) {
+        if (DEBUG) Log.d(TAG, "record type=" + type + " value=" + value);
+        boolean postFrame;
+        synchronized (mLock) {
+            int slot = (int) (mWritten & mMask);
+            mTimes[slot] = SystemClock.uptimeMillis();
+            mTypes[slot] = type;
+            mValues[slot] = value;
+            mWritten++;
+            if (mWritten - mRead > mTimes.length) mRead = mWritten - mTimes.length;
+
+            switch (type) {
+                case TYPE_VERTICAL_SCROLL:
+                    mVerticalScrollCount++;
+                    mLastScrollUp = value != 0;
+                    break;
+                case TYPE_GREATEST_SCROLL_PERCENTAGE:
+                    mGreatestScrollPercentage = value;
+                    break;
+                case TYPE_SESSION_ENDED:
+                    mSessionEnded = value;
+                    break;
+                case TYPE_RESET:
+                    mVerticalScrollCount = 0;
+                    mGreatestScrollPercentage = -1;
+                    break;
+            }
+            postFrame = !mFramePending;
+            mFramePending = true;
+        }
+        // Choreographer is threadsafe, and coalesces everything until the next frame.
+        if (postFrame) mChoreographer.postFrameCallback(mFrameCallback);
+    }
+
+    private void onFrame(long frameTimeNanos) {
+        synchronized (mLock) {
+            mFramePending = false;
+        }
+        mListener.onEngagementSignalsChanged(this);
+    }
+
+    /**
+     * Visits, oldest first, every event recorded since the last drain.
+     *
+     * @return the number of events visited.
+     */
+    public int drain(EventVisitor visitor) {
+        synchronized (mLock) {
+            int count = 0;
+            for (; mRead < mWritten; mRead++) {
+                int slot = (int) (mRead & mMask);
+                visitor.visit(mTimes[slot], mTypes[slot], mValues[slot]);
+                count++;
+            }
+            return count;
+        }
+    }
+
+    /**
+     * @return The number of vertical scroll events since the last reset.
+     */
+    public int getVerticalScrollCount() {
+        synchronized (mLock) {
+            return mVerticalScrollCount;
+        }
+    }
+
+    /**
+     * @return Whether the last vertical scroll was upwards.
+     */
+    public boolean isLastScrollUp() {
+        synchronized (mLock) {
+            return mLastScrollUp;
+        }
+    }
+
+    /**
+     * @return The greatest scroll percentage since the last reset, or -1 if there is none.
+     */
+    public int getGreatestScrollPercentage() {
+        synchronized (mLock) {
+            return mGreatestScrollPercentage;
+        }
+    }
+
+    /**
+     * @return 1 if the session ended with user interaction, 0 without, -1 if it has not ended.
+     */
+    public int getSessionEnded() {
+        synchronized (mLock) {
+            return mSessionEnded;
+        }
+    }
+}
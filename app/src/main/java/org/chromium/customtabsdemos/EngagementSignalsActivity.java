@@ -18,6 +18,7 @@ import static androidx.browser.customtabs.CustomTabsIntent.ACTIVITY_HEIGHT_ADJUS
 
 import android.net.Uri;
 import android.os.Bundle;
+import android.os.SystemClock;
 
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
@@ -29,6 +30,8 @@ import android.view.View;
 import android.widget.EditText;
 import android.widget.TextView;
 
+import java.io.IOException;
+
 import androidx.browser.customtabs.CustomTabsCallback;
 import androidx.browser.customtabs.CustomTabsClient;
 import androidx.browser.customtabs.CustomTabsIntent;
@@ -42,6 +45,12 @@ public class EngagementSignalsActivity extends AppCompatActivity
     private static final int INITIAL_HEIGHT_DEFAULT_PX = 600;
     private static final int CORNER_RADIUS_MAX_DP = 16;
     private static final int CORNER_RADIUS_DEFAULT_DP = CORNER_RADIUS_MAX_DP;
+    // Navigation events are stored after the engagement signal types.
+    private static final int EVENT_TYPE_NAVIGATION_BASE = 100;
+
+    // Identifies Custom Tab launches in the event store. Seeded from the clock so that ids stay
+    // distinct across process restarts.
+    private static int sNextSessionId = (int) (System.currentTimeMillis() / 1000);
 
     private EditText mUrlEditText;
     private TextView mTextVerticalScroll;
@@ -58,23 +67,33 @@ public class EngagementSignalsActivity extends AppCompatActivity
 
     private CustomTabActivityHelper mCustomTabActivityHelper;
 
+    private EngagementSignalAggregator mSignalAggregator;
+    // What the labels currently show, so that they are only relaid out when it changes.
+    private int mShownScrollDirection = -2;
+    private int mShownGreatestPercentage = -2;
+    private int mShownSessionEnded = -2;
+
+    private int mSessionId;
+    // Difference between wall clock and uptime, refreshed on every drain.
+    private long mUptimeToWallClockMs;
+    private final EngagementSignalAggregator.EventVisitor mEventWriter =
+            (uptimeMillis, type, value) -> storeEvent(uptimeMillis + mUptimeToWallClockMs, type,
+                    value);
+
     private EngagementSignalsCallback mEngagementSignalsCallback = new EngagementSignalsCallback() {
         @Override
         public void onVerticalScrollEvent(boolean isDirectionUp, @NonNull Bundle extras) {
-            log("onVerticalScrollEvent (isDirectionUp=" + isDirectionUp + ')');
-            mTextVerticalScroll.setText("vertical scroll " + (isDirectionUp ? "UP️" : "DOWN"));
+            mSignalAggregator.recordVerticalScroll(isDirectionUp);
         }
 
         @Override
         public void onGreatestScrollPercentageIncreased(int scrollPercentage, @NonNull Bundle extras) {
-            log("scroll percentage: " + scrollPercentage + "%");
-            mTextGreatestPercentage.setText("scroll percentage: " + scrollPercentage + "%");
+            mSignalAggregator.recordGreatestScrollPercentage(scrollPercentage);
         }
 
         @Override
         public void onSessionEnded(boolean didUserInteract, @NonNull Bundle extras) {
-            log("onSessionEnded (didUserInteract=" + didUserInteract + ')');
-            mTextSessionEnd.setText(didUserInteract ? "session ended with user interaction" : "session ended without user interaction");
+            mSignalAggregator.recordSessionEnded(didUserInteract);
         }
     };
 
@@ -95,8 +114,7 @@ public class EngagementSignalsActivity extends AppCompatActivity
                 case CustomTabsCallback.NAVIGATION_STARTED:
                     event = "NAVIGATION_STARTED";
                     // Scroll percentage and direction should be reset
-                    mTextVerticalScroll.setText("vertical scroll: n/a");
-                    mTextGreatestPercentage.setText("scroll percentage: n/a");
+                    mSignalAggregator.reset();
                     break;
                 case CustomTabsCallback.TAB_SHOWN:
                     event = "TAB_SHOWN";
@@ -108,6 +126,7 @@ public class EngagementSignalsActivity extends AppCompatActivity
                     event = String.valueOf(navigationEvent);
             }
             log("onNavigationEvent (navigationEvent=" + event + ')');
+            storeEvent(System.currentTimeMillis(), EVENT_TYPE_NAVIGATION_BASE + navigationEvent, 0);
             mTextNavigation.setText("onNavigationEvent " + event);
         }
     };
@@ -125,6 +144,58 @@ public class EngagementSignalsActivity extends AppCompatActivity
         mTextVerticalScroll = findViewById(R.id.label_event_vertical_scroll);
 
         mCustomTabActivityHelper = new CustomTabActivityHelper();
+        mSignalAggregator = new EngagementSignalAggregator(this::showEngagementSignals);
+    }
+
+    /**
+     * Called at most once per frame with the latest signals.
+     */
+    private void showEngagementSignals(EngagementSignalAggregator aggregator) {
+        mUptimeToWallClockMs = System.currentTimeMillis() - SystemClock.uptimeMillis();
+        aggregator.drain(mEventWriter);
+
+        int scrollDirection = aggregator.getVerticalScrollCount() == 0
+                ? -1 : aggregator.isLastScrollUp() ? 1 : 0;
+        if (scrollDirection != mShownScrollDirection) {
+            mShownScrollDirection = scrollDirection;
+            if (scrollDirection < 0) {
+                mTextVerticalScroll.setText("vertical scroll: n/a");
+            } else {
+                mTextVerticalScroll.setText(
+                        "vertical scroll " + (scrollDirection == 1 ? "UP️" : "DOWN"));
+            }
+        }
+
+        int greatestPercentage = aggregator.getGreatestScrollPercentage();
+        if (greatestPercentage != mShownGreatestPercentage) {
+            mShownGreatestPercentage = greatestPercentage;
+            mTextGreatestPercentage.setText(greatestPercentage < 0
+                    ? "scroll percentage: n/a"
+                    : "scroll percentage: " + greatestPercentage + "%");
+        }
+
+        int sessionEnded = aggregator.getSessionEnded();
+        if (sessionEnded != mShownSessionEnded) {
+            mShownSessionEnded = sessionEnded;
+            if (sessionEnded >= 0) {
+                mTextSessionEnd.setText(sessionEnded == 1
+                        ? "session ended with user interaction"
+                        : "session ended without user interaction");
+            } else {
+                mTextSessionEnd.setText("");
+            }
+        }
+    }
+
+    private void storeEvent(long timestampMs, int type, long value) {
+        EngagementEventStore store =
+                ((CustomTabsDemoApplication) getApplication()).getEngagementEventStore();
+        if (store == null) return;
+        try {
+            store.append(timestampMs, mSessionId, type, value);
+        } catch (IOException e) {
+            loge("Could not store event " + e);
+        }
     }
 
     @Override
@@ -143,6 +214,16 @@ public class EngagementSignalsActivity extends AppCompatActivity
         mCustomTabActivityHelper.unbindCustomTabsService(this);
     }
 
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        // Events keep arriving while the Custom Tab covers this screen, so the callbacks are only
+        // removed here rather than in onStop().
+        mCustomTabActivityHelper.removeSessionCallback(this);
+        CustomTabsConnectionManager.getInstance(this)
+                .removeEngagementSignalsCallback(mEngagementSignalsCallback);
+    }
+
     @Override
     public void onCustomTabsConnected() {
         log("onCustomTabsConnected");
@@ -154,7 +235,13 @@ public class EngagementSignalsActivity extends AppCompatActivity
                         "latest Chrome version");
                 return;
             }
-            boolean signalsCallback = customTabsSession.setEngagementSignalsCallback(mEngagementSignalsCallback, Bundle.EMPTY);
+            // The session outlives this screen, so the callback goes through the connection
+            // manager, which this screen unregisters from once destroyed.
+            CustomTabsConnectionManager connectionManager =
+                    CustomTabsConnectionManager.getInstance(this);
+            connectionManager.addEngagementSignalsCallback(mEngagementSignalsCallback);
+            boolean signalsCallback = customTabsSession.setEngagementSignalsCallback(
+                    connectionManager.getEngagementSignalsCallback(), Bundle.EMPTY);
             if (!signalsCallback) {
                 loge("Could not set EngagementSignalsCallback");
             }
@@ -180,6 +267,7 @@ public class EngagementSignalsActivity extends AppCompatActivity
     private void openCustomTab() {
         log("openCustomTab");
         String url = mUrlEditText.getText().toString();
+        mSessionId = ++sNextSessionId;
 
         int toolbarCornerRadiusDp = 16;
         int toolbarCornerRadiusPx =
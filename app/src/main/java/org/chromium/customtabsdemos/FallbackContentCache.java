@@ -0,0 +1,182 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.content.Context;
+import android.net.Uri;
+import android.text.TextUtils;
+import android.util.Log;
+import android.webkit.CookieManager;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
+
+import androidx.annotation.Nullable;
+
+import org.chromium.customtabsdemos.core.HttpDiskCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Prefetches the pages likely to be opened by the {@link WebviewFallback} into an
+ * {@link HttpDiskCache}, and serves them to its WebView.
+ *
+ * <p>Only URLs that were prefetched are served, with the body file streamed to the WebView along
+ * with the stored status and headers. Requests carry the WebView's cookies for the URL. Since
+ * entries are keyed on the URL alone, the {@link HttpDiskCache} only stores the response to such
+ * a request if it is explicitly public, and refuses responses that are private, set cookies or
+ * Vary, so nothing tailored to one user or request is served to another, e.g. after a logout.
+ *
+ * <p>An entry older than {@link #MAX_AGE_MS} is not served; it is revalidated in the background
+ * for the next request instead. A request for a URL whose prefetch is still running waits for
+ * it, for up to {@link #PREFETCH_WAIT_MS}. Anything else, including any failure, goes to the
+ * network as usual.
+ *
+ * <p>This is threadsafe.
+ */
+public final class FallbackContentCache {
+    private static final String TAG = "FallbackContentCache";
+    private static final boolean DEBUG = false;
+
+    public static final long MAX_BYTES = 16 * 1024 * 1024;
+    public static final long MAX_AGE_MS = 5 * 60 * 1000;
+    public static final long PREFETCH_WAIT_MS = 3000;
+    private static final String DIRECTORY = "fallback-http";
+    private static final String DEFAULT_MIME_TYPE = "application/octet-stream";
+    private static final String DEFAULT_REASON_PHRASE = "OK";
+
+    private static FallbackContentCache sInstance;
+
+    private final ExecutorService mExecutor = Executors.newFixedThreadPool(2);
+    private final ConcurrentHashMap<String, Future<?>> mInFlight = new ConcurrentHashMap<>();
+    private final Future<HttpDiskCache> mCache;
+
+    private FallbackContentCache(Context context) {
+        File directory = new File(context.getCacheDir(), DIRECTORY);
+        // Opening lists the directory, keep it off the main thread.
+        mCache = mExecutor.submit(() -> new HttpDiskCache(directory, MAX_BYTES));
+    }
+
+    public static synchronized FallbackContentCache getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new FallbackContentCache(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * Downloads or revalidates the page in the background, unless it is fresh or already being
+     * fetched.
+     */
+    public void prefetch(@Nullable Uri uri) {
+        if (!isCacheable(uri, "GET")) return;
+        String url = uri.toString();
+        if (mInFlight.containsKey(url)) return;
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            try {
+                getCache().fetch(url, MAX_AGE_MS, getRequestHeaders(url));
+                logd("prefetch done url=" + url);
+            } catch (IOException | InterruptedException | ExecutionException e) {
+                logd("prefetch failed url=" + url + " " + e);
+            } finally {
+                mInFlight.remove(url);
+            }
+        }, null);
+        // Registered before it runs, so that it is always removed once done.
+        if (mInFlight.putIfAbsent(url, task) == null) mExecutor.execute(task);
+    }
+
+    /**
+     * Called from WebViewClient#shouldInterceptRequest, on a WebView background thread.
+     *
+     * @return The cached response, or null to load from the network.
+     */
+    @Nullable
+    public WebResourceResponse intercept(WebResourceRequest request) {
+        if (!isCacheable(request.getUrl(), request.getMethod())) return null;
+        String url = request.getUrl().toString();
+        try {
+            Future<?> prefetch = mInFlight.get(url);
+            if (prefetch != null) prefetch.get(PREFETCH_WAIT_MS, TimeUnit.MILLISECONDS);
+            HttpDiskCache cache = getCache();
+            if (!cache.contains(url)) return null;
+
+            // Revalidating here would block the WebView's IO thread on the network.
+            HttpDiskCache.Entry entry = cache.getFresh(url, MAX_AGE_MS);
+            if (entry == null) {
+                logd("intercept stale url=" + url);
+                prefetch(request.getUrl());
+                return null;
+            }
+            String mimeType = entry.getMimeType() == null
+                    ? DEFAULT_MIME_TYPE : entry.getMimeType();
+            String reasonPhrase = TextUtils.isEmpty(entry.getReasonPhrase())
+                    ? DEFAULT_REASON_PHRASE : entry.getReasonPhrase();
+            logd("intercept hit url=" + url);
+            return new WebResourceResponse(mimeType, entry.getCharset(), 200, reasonPhrase,
+                    entry.getHeaders(), entry.openStream());
+        } catch (IOException | InterruptedException | ExecutionException
+                | TimeoutException e) {
+            logd("intercept miss url=" + url + " " + e);
+            return null;
+        }
+    }
+
+    public String dump() {
+        if (!mCache.isDone()) return "opening";
+        try {
+            HttpDiskCache cache = getCache();
+            return "entries=" + cache.getEntryCount() + " bytes=" + cache.getSize()
+                    + " hits=" + cache.getHitCount()
+                    + " revalidations=" + cache.getRevalidationCount()
+                    + " downloads=" + cache.getDownloadCount();
+        } catch (InterruptedException | ExecutionException e) {
+            return "unavailable " + e;
+        }
+    }
+
+    private HttpDiskCache getCache() throws InterruptedException, ExecutionException {
+        return mCache.get();
+    }
+
+    /**
+     * @return The Cookie the WebView would send for the URL, so that the fetch sees what the page
+     *         would have.
+     */
+    private static Map<String, String> getRequestHeaders(String url) {
+        String cookie = CookieManager.getInstance().getCookie(url);
+        if (TextUtils.isEmpty(cookie)) return Collections.emptyMap();
+        return Collections.singletonMap("Cookie", cookie);
+    }
+
+    private static boolean isCacheable(@Nullable Uri uri, String method) {
+        if (uri == null || !"GET".equals(method)) return false;
+        String scheme = uri.getScheme();
+        return "http".equals(scheme) || "https".equals(scheme);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
@@ -0,0 +1,230 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.content.Intent;
+import android.graphics.Bitmap;
+import android.os.Bundle;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Keeps Custom Tabs launch intents under a marshalled size budget.
+ *
+ * <p>The icons of a Custom Tab travel inside the launch Intent, so large bitmaps slow down the
+ * startActivity binder transaction, and can make it fail with TransactionTooLargeException. At
+ * launch, the Intent is written to a Parcel to measure it. If it is over budget, every bitmap in
+ * its extras, including those nested in bundles and lists, is downscaled step by step from the
+ * original until it fits or the icons reach {@link #MIN_ICON_HEIGHT_PX}.
+ *
+ * <p>The size of every launch intent is recorded in a histogram, in bytes.
+ *
+ * <p>This is threadsafe.
+ */
+public final class IntentParcelBudget {
+    private static final String TAG = "IntentParcelBudget";
+    private static final boolean DEBUG = false;
+
+    public static final int DEFAULT_BUDGET_BYTES = 64 * 1024;
+    public static final int MIN_ICON_HEIGHT_PX = 16;
+    private static final float SHRINK_STEP = 0.75f;
+    // Bitmaps above this are written as ashmem when the parcel allows file descriptors, as
+    // Parcel.obtain() does, but inline in a launch Intent, which does not.
+    private static final int BLOB_INPLACE_LIMIT = 16 * 1024;
+
+    private static final LatencyHistogram sSizes = new LatencyHistogram();
+    private static final AtomicInteger sShrunk = new AtomicInteger();
+    private static final AtomicInteger sOverBudget = new AtomicInteger();
+
+    private IntentParcelBudget() {}
+
+    /**
+     * Fits a launch intent into {@link #DEFAULT_BUDGET_BYTES} and records its size. Called right
+     * before the Intent is sent.
+     *
+     * @return The marshalled size of the Intent, once shrunk.
+     */
+    public static int onLaunch(Intent intent) {
+        int size = shrinkToFit(intent, DEFAULT_BUDGET_BYTES);
+        sSizes.record(size);
+        return size;
+    }
+
+    /**
+     * Downscales the bitmaps in the extras until the Intent fits the budget. Bitmaps and bundles
+     * shared with other intents are copied, never modified. This may be called on any thread,
+     * e.g. when an Intent is prebuilt, so that the launch only has to measure it.
+     *
+     * @return The marshalled size of the Intent, once shrunk.
+     */
+    public static int shrinkToFit(Intent intent, int budgetBytes) {
+        int size = measure(intent);
+        if (size > budgetBytes) {
+            Bundle original = intent.getExtras();
+            int originalSize = size;
+            float scale = 1f;
+            while (size > budgetBytes && original != null) {
+                scale *= SHRINK_STEP;
+                Shrinker shrinker = new Shrinker(scale);
+                Bundle shrunk = shrinker.shrink(original);
+                if (!shrinker.mShrunk) break;
+                intent.replaceExtras(shrunk);
+                size = measure(intent);
+            }
+            if (size < originalSize) sShrunk.incrementAndGet();
+            if (size > budgetBytes) {
+                sOverBudget.incrementAndGet();
+                loge("Intent over budget size=" + size + " budget=" + budgetBytes);
+            }
+            logd("shrinkToFit " + originalSize + " -> " + size + " scale=" + scale);
+        }
+        return size;
+    }
+
+    /**
+     * @return The number of bytes the Intent takes in a launch transaction.
+     */
+    public static int measure(Intent intent) {
+        Parcel parcel = Parcel.obtain();
+        try {
+            intent.writeToParcel(parcel, 0);
+            int size = parcel.dataSize();
+            if (parcel.hasFileDescriptors()) {
+                Bundle extras = intent.getExtras();
+                if (extras != null) size += countBlobBytes(extras);
+            }
+            return size;
+        } finally {
+            parcel.recycle();
+        }
+    }
+
+    @SuppressWarnings("deprecation")
+    private static int countBlobBytes(Object value) {
+        if (value instanceof Bitmap) {
+            int bytes = ((Bitmap) value).getByteCount();
+            return bytes > BLOB_INPLACE_LIMIT ? bytes : 0;
+        }
+        int bytes = 0;
+        if (value instanceof Bundle) {
+            Bundle bundle = (Bundle) value;
+            for (String key : bundle.keySet()) {
+                bytes += countBlobBytes(bundle.get(key));
+            }
+        } else if (value instanceof List) {
+            for (Object element : (List<?>) value) {
+                bytes += countBlobBytes(element);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * @return The marshalled sizes of the launch intents so far, in bytes.
+     */
+    public static LatencyHistogram.Snapshot getSizeSnapshot() {
+        return sSizes.snapshot();
+    }
+
+    /** @return Intents whose icons were downscaled. */
+    public static int getShrunkCount() {
+        return sShrunk.get();
+    }
+
+    /** @return Intents that stayed over budget with the smallest icons. */
+    public static int getOverBudgetCount() {
+        return sOverBudget.get();
+    }
+
+    public static String dump() {
+        return "size " + sSizes.snapshot() + " shrunk=" + sShrunk.get()
+                + " overBudget=" + sOverBudget.get();
+    }
+
+    /**
+     * Copies a bundle with its bitmaps scaled down.
+     */
+    private static class Shrinker {
+        final float mScale;
+        boolean mShrunk;
+
+        Shrinker(float scale) {
+            mScale = scale;
+        }
+
+        @SuppressWarnings("deprecation")
+        Bundle shrink(Bundle bundle) {
+            Bundle copy = new Bundle(bundle);
+            for (String key : bundle.keySet()) {
+                Object value = bundle.get(key);
+                Object shrunk = shrinkValue(value);
+                if (shrunk == value) continue;
+                if (shrunk instanceof Bitmap) {
+                    copy.putParcelable(key, (Bitmap) shrunk);
+                } else if (shrunk instanceof Bundle) {
+                    copy.putBundle(key, (Bundle) shrunk);
+                } else {
+                    copy.putParcelableArrayList(key, castList(shrunk));
+                }
+            }
+            return copy;
+        }
+
+        private Object shrinkValue(Object value) {
+            if (value instanceof Bitmap) return shrinkBitmap((Bitmap) value);
+            if (value instanceof Bundle) return shrink((Bundle) value);
+            if (value instanceof ArrayList) {
+                ArrayList<?> list = (ArrayList<?>) value;
+                ArrayList<Object> copy = new ArrayList<>(list.size());
+                boolean changed = false;
+                for (Object element : list) {
+                    Object shrunk = shrinkValue(element);
+                    changed |= shrunk != element;
+                    copy.add(shrunk);
+                }
+                return changed ? copy : value;
+            }
+            return value;
+        }
+
+        private Bitmap shrinkBitmap(Bitmap bitmap) {
+            int height = Math.max(Math.round(bitmap.getHeight() * mScale),
+                    Math.min(bitmap.getHeight(), MIN_ICON_HEIGHT_PX));
+            if (height >= bitmap.getHeight()) return bitmap;
+            int width = Math.max(1, Math.round(bitmap.getWidth() * (float) height
+                    / bitmap.getHeight()));
+            mShrunk = true;
+            // The original may be shared, e.g. by ToolbarIconCache, so it is not recycled.
+            return Bitmap.createScaledBitmap(bitmap, width, height, true);
+        }
+
+        @SuppressWarnings("unchecked")
+        private static ArrayList<Parcelable> castList(Object list) {
+            return (ArrayList<Parcelable>) list;
+        }
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+
+    private static void loge(String msg) {
+        Log.e(TAG, msg);
+    }
+}
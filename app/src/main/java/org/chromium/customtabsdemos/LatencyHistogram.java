@@ -0,0 +1,144 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of non-negative values with logarithmic buckets.
+ *
+ * <p>Every power of two is split into {@link #SUB_BUCKETS} buckets, so a percentile is within
+ * about 6% of the recorded value, and values below {@link #SUB_BUCKETS} are exact. Recording is a
+ * few atomic increments without locks or allocation, so it can be called from binder threads.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BUCKET_BITS = 3;
+    public static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Enough buckets for any positive long.
+    private static final int BUCKET_COUNT = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray mBuckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong mCount = new AtomicLong();
+    private final AtomicLong mSum = new AtomicLong();
+    private final AtomicLong mMax = new AtomicLong();
+
+    /**
+     * Records a value. Negative values are recorded as 0.
+     */
+    public void record(long value) {
+        if (value < 0) value = 0;
+        mBuckets.incrementAndGet(bucketIndex(value));
+        mCount.incrementAndGet();
+        mSum.addAndGet(value);
+        long max;
+        do {
+            max = mMax.get();
+        } while (value > max && !mMax.compareAndSet(max, value));
+    }
+
+    /**
+     * Copies the current state. Values recorded concurrently may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] buckets = new long[BUCKET_COUNT];
+        long count = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = mBuckets.get(i);
+            count += buckets[i];
+        }
+        return new Snapshot(buckets, count, mSum.get(), mMax.get());
+    }
+
+    static int bucketIndex(long value) {
+        if (value < SUB_BUCKETS) return (int) value;
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int mantissa = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + mantissa;
+    }
+
+    static long bucketLowerBound(int index) {
+        if (index < SUB_BUCKETS) return index;
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        long mantissa = SUB_BUCKETS + index % SUB_BUCKETS;
+        return mantissa << (exponent - SUB_BUCKET_BITS);
+    }
+
+    /**
+     * An immutable copy of a histogram.
+     */
+    public static final class Snapshot {
+        private final long[] mBuckets;
+        private final long mCount;
+        private final long mSum;
+        private final long mMax;
+
+        Snapshot(long[] buckets, long count, long sum, long max) {
+            mBuckets = buckets;
+            mCount = count;
+            mSum = sum;
+            mMax = max;
+        }
+
+        public long getCount() {
+            return mCount;
+        }
+
+        public long getMax() {
+            return mMax;
+        }
+
+        public double getMean() {
+            return mCount == 0 ? 0 : mSum / (double) mCount;
+        }
+
+        /**
+         * @param quantile between 0 and 1, e.g. 0.9 for p90.
+         * @return The middle of the bucket holding the quantile, at most the max, or 0 if the
+         *         histogram is empty.
+         */
+        public long getPercentile(double quantile) {
+            if (mCount == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(quantile * mCount));
+            long seen = 0;
+            for (int i = 0; i < mBuckets.length; i++) {
+                seen += mBuckets[i];
+                if (seen >= rank) {
+                    long low = bucketLowerBound(i);
+                    long high = i + 1 < mBuckets.length ? bucketLowerBound(i + 1) : Long.MAX_VALUE;
+                    return Math.min(low + (high - low - 1) / 2, mMax);
+                }
+            }
+            return mMax;
+        }
+
+        public long getP50() {
+            return getPercentile(0.5);
+        }
+
+        public long getP90() {
+            return getPercentile(0.9);
+        }
+
+        public long getP99() {
+            return getPercentile(0.99);
+        }
+
+        @Override
+        public String toString() {
+            return "n=" + mCount + " p50=" + getP50() + " p90=" + getP90() + " p99=" + getP99()
+                    + " max=" + mMax;
+        }
+    }
+}
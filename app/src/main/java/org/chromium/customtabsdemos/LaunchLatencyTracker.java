@@ -0,0 +1,217 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.os.Build;
+import android.os.Bundle;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsCallback;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Measures the time from launching a Custom Tab to its first navigation events.
+ *
+ * <p>For each launch type, the latency to {@link CustomTabsCallback#TAB_SHOWN},
+ * {@link CustomTabsCallback#NAVIGATION_STARTED} and {@link CustomTabsCallback#NAVIGATION_FINISHED}
+ * is recorded into a {@link LatencyHistogram}, in milliseconds. Events are only delivered to a
+ * session, so a launch without one is counted but produces no samples.
+ *
+ * <p>It is registered on the session of {@link CustomTabsConnectionManager}. Launches are
+ * reported on the main thread; events may arrive on any thread.
+ */
+public class LaunchLatencyTracker extends CustomTabsCallback {
+    private static final String TAG = "LaunchLatencyTracker";
+    private static final boolean DEBUG = false;
+
+    /** A default Custom Tab, launched without a session. */
+    public static final int LAUNCH_SIMPLE = 0;
+    /** A partial Custom Tab. */
+    public static final int LAUNCH_PARTIAL = 1;
+    /** A full screen Custom Tab. */
+    public static final int LAUNCH_SESSION = 2;
+    private static final int LAUNCH_TYPE_COUNT = 3;
+    private static final String[] LAUNCH_TYPE_NAMES = {"simple", "partial", "session"};
+
+    public static final int EVENT_TAB_SHOWN = 0;
+    public static final int EVENT_NAVIGATION_STARTED = 1;
+    public static final int EVENT_NAVIGATION_FINISHED = 2;
+    private static final int EVENT_COUNT = 3;
+    private static final String[] EVENT_NAMES = {"shown", "started", "finished"};
+    private static final int ALL_EVENTS = (1 << EVENT_COUNT) - 1;
+
+    private static final String TRACE_SECTION = "CustomTabLaunchToShown";
+
+    private static final LaunchLatencyTracker sInstance = new LaunchLatencyTracker();
+
+    /**
+     * Notified of every latency recorded, on the thread the event arrived on.
+     */
+    public interface Listener {
+        /**
+         * @param launchType one of the LAUNCH_ constants.
+         * @param event one of the EVENT_ constants.
+         * @param packageName the provider the launch was sent to, or null if unknown.
+         */
+        void onLatency(int launchType, int event, long latencyMs, @Nullable String packageName);
+    }
+
+    private final LatencyHistogram[][] mHistograms =
+            new LatencyHistogram[LAUNCH_TYPE_COUNT][EVENT_COUNT];
+    private final AtomicInteger[] mLaunchCounts = new AtomicInteger[LAUNCH_TYPE_COUNT];
+
+    private final Object mLock = new Object();
+    // The launch being measured, guarded by mLock. mPendingEvents is 0 when there is none.
+    private long mLaunchTimeMs;
+    private int mLaunchType;
+    @Nullable
+    private String mLaunchPackageName;
+    private int mPendingEvents;
+    private int mTraceCookie;
+    @Nullable
+    private volatile Listener mListener;
+
+    private LaunchLatencyTracker() {
+        for (int type = 0; type < LAUNCH_TYPE_COUNT; type++) {
+            mLaunchCounts[type] = new AtomicInteger();
+            for (int event = 0; event < EVENT_COUNT; event++) {
+                mHistograms[type][event] = new LatencyHistogram();
+            }
+        }
+    }
+
+    public static LaunchLatencyTracker getInstance() {
+        return sInstance;
+    }
+
+    public void setListener(@Nullable Listener listener) {
+        mListener = listener;
+    }
+
+    /**
+     * Called right before launchUrl.
+     *
+     * @param launchType one of the LAUNCH_ constants.
+     * @param withSession whether the intent carries the session, i.e. whether events will arrive.
+     * @param packageName the provider the intent is sent to, which the latencies are credited to
+     *         even if the connection fails over before the events arrive.
+     */
+    public void onLaunch(int launchType, boolean withSession, @Nullable String packageName) {
+        mLaunchCounts[launchType].incrementAndGet();
+        synchronized (mLock) {
+            endTrace();
+            if (!withSession) {
+                mPendingEvents = 0;
+                return;
+            }
+            mLaunchTimeMs = SystemClock.elapsedRealtime();
+            mLaunchType = launchType;
+            mLaunchPackageName = packageName;
+            mPendingEvents = ALL_EVENTS;
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+                Trace.beginAsyncSection(TRACE_SECTION, ++mTraceCookie);
+            }
+        }
+    }
+
+    @Override
+    public void onNavigationEvent(int navigationEvent, @Nullable Bundle extras) {
+        long nowMs = SystemClock.elapsedRealtime();
+        int event;
+        switch (navigationEvent) {
+            case TAB_SHOWN:
+                event = EVENT_TAB_SHOWN;
+                break;
+            case NAVIGATION_STARTED:
+                event = EVENT_NAVIGATION_STARTED;
+                break;
+            case NAVIGATION_FINISHED:
+                event = EVENT_NAVIGATION_FINISHED;
+                break;
+            case NAVIGATION_FAILED:
+            case NAVIGATION_ABORTED:
+                // The page will not finish loading; drop what is left of this launch.
+                synchronized (mLock) {
+                    endTrace();
+                    mPendingEvents = 0;
+                }
+                return;
+            default:
+                return;
+        }
+
+        int launchType;
+        long latencyMs;
+        String packageName;
+        synchronized (mLock) {
+            // Only the first occurrence of each event after the launch is measured.
+            if ((mPendingEvents & (1 << event)) == 0) return;
+            launchType = mLaunchType;
+            packageName = mLaunchPackageName;
+            latencyMs = nowMs - mLaunchTimeMs;
+            mHistograms[launchType][event].record(latencyMs);
+            if (event == EVENT_TAB_SHOWN || event == EVENT_NAVIGATION_FINISHED) endTrace();
+            mPendingEvents &= ~(1 << event);
+            if (event == EVENT_NAVIGATION_FINISHED) mPendingEvents = 0;
+            logd(EVENT_NAMES[event] + " after " + latencyMs + "ms");
+        }
+        Listener listener = mListener;
+        if (listener != null) listener.onLatency(launchType, event, latencyMs, packageName);
+    }
+
+    private void endTrace() {
+        if ((mPendingEvents & (1 << EVENT_TAB_SHOWN)) == 0) return;
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q) {
+            Trace.endAsyncSection(TRACE_SECTION, mTraceCookie);
+        }
+    }
+
+    /**
+     * @param launchType one of the LAUNCH_ constants.
+     * @param event one of the EVENT_ constants.
+     * @return The latencies recorded so far, in milliseconds.
+     */
+    public LatencyHistogram.Snapshot getSnapshot(int launchType, int event) {
+        return mHistograms[launchType][event].snapshot();
+    }
+
+    /**
+     * @param launchType one of the LAUNCH_ constants.
+     * @return The number of launches, including those without a session.
+     */
+    public int getLaunchCount(int launchType) {
+        return mLaunchCounts[launchType].get();
+    }
+
+    public String dump() {
+        StringBuilder builder = new StringBuilder();
+        for (int type = 0; type < LAUNCH_TYPE_COUNT; type++) {
+            builder.append(LAUNCH_TYPE_NAMES[type])
+                    .append(" launches=").append(mLaunchCounts[type].get()).append('\n');
+            for (int event = 0; event < EVENT_COUNT; event++) {
+                builder.append("  ").append(EVENT_NAMES[event]).append(": ")
+                        .append(mHistograms[type][event].snapshot()).append('\n');
+            }
+        }
+        return builder.toString();
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
@@ -0,0 +1,127 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.util.Log;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * A feed of links, like the article lists of a news app. {@link VisibleLinkPrefetcher} hints the
+ * links the user is most likely to open next while they scroll, and a tap opens the link in a
+ * Custom Tab.
+ */
+public class LinkListActivity extends AppCompatActivity
+        implements CustomTabActivityHelper.ConnectionCallback {
+    private static final String TAG = "LinkListActivity";
+
+    private CustomTabActivityHelper mCustomTabActivityHelper;
+    private VisibleLinkPrefetcher mPrefetcher;
+    private RecyclerView mRecyclerView;
+    private String[] mTitles;
+    private String[] mUrls;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_link_list);
+
+        mTitles = getResources().getStringArray(R.array.link_list_titles);
+        mUrls = getResources().getStringArray(R.array.link_list_urls);
+
+        mCustomTabActivityHelper = new CustomTabActivityHelper();
+        mPrefetcher = new VisibleLinkPrefetcher(mCustomTabActivityHelper,
+                position -> Uri.parse(mUrls[position]));
+
+        mRecyclerView = findViewById(android.R.id.list);
+        mRecyclerView.setLayoutManager(new LinearLayoutManager(this));
+        mRecyclerView.setAdapter(new LinkAdapter());
+    }
+
+    @Override
+    protected void onStart() {
+        super.onStart();
+        mCustomTabActivityHelper.setConnectionCallback(this);
+        if (!mCustomTabActivityHelper.bindCustomTabsService(this)) {
+            // Failed to request binding service.
+        }
+        mPrefetcher.attach(mRecyclerView);
+    }
+
+    @Override
+    protected void onStop() {
+        super.onStop();
+        mPrefetcher.detach();
+        mCustomTabActivityHelper.setConnectionCallback(null);
+        mCustomTabActivityHelper.unbindCustomTabsService(this);
+    }
+
+    @Override
+    public void onCustomTabsConnected() {
+        log("onCustomTabsConnected");
+        // Hints sent before the connection only reached the WebView fallback cache.
+        mPrefetcher.prefetchNow();
+    }
+
+    @Override
+    public void onCustomTabsDisconnected() {
+        log("onCustomTabsDisconnected");
+    }
+
+    private void openLink(int position) {
+        mCustomTabActivityHelper.openCustomTab(this, Uri.parse(mUrls[position]),
+                new WebviewFallback(), CustomTabsLaunchDispatcher.DEFAULT_WINDOW_MS);
+    }
+
+    private class LinkAdapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent,
+                int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_example_description, parent, false);
+            RecyclerView.ViewHolder holder = new RecyclerView.ViewHolder(view) {};
+            view.setOnClickListener(v -> {
+                int position = holder.getAdapterPosition();
+                if (position != RecyclerView.NO_POSITION) openLink(position);
+            });
+            return holder;
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            ((TextView) holder.itemView.findViewById(R.id.title)).setText(mTitles[position]);
+            ((TextView) holder.itemView.findViewById(R.id.description)).setText(mUrls[position]);
+        }
+
+        @Override
+        public int getItemCount() {
+            return Math.min(mTitles.length, mUrls.length);
+        }
+    }
+
+    private static void log(String msg) {
+        Log.i(TAG, msg);
+    }
+}
@@ -0,0 +1,165 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Decides whether a mayLaunchUrl hint is worth a binder call to the browser.
+ *
+ * <p>A hint is dropped if:
+ * <ul>
+ *   <li> The same URL, once normalized, was hinted within the repeat window. Recent hints are
+ *     kept in a small LRU keyed by a 64-bit hash of the URL. </li>
+ *   <li> The token bucket is empty, i.e. too many hints were sent recently. </li>
+ *   <li> The browser refused the last hint, in which case hints are backed off exponentially
+ *     until one is accepted again. </li>
+ * </ul>
+ *
+ * <p>This is threadsafe. Times are passed in by the caller so that any monotonic clock works.
+ */
+public class MayLaunchUrlThrottler {
+    public static final long DEFAULT_REPEAT_WINDOW_MS = 10000;
+    public static final int DEFAULT_MAX_RECENT_HINTS = 64;
+    public static final int DEFAULT_BUCKET_CAPACITY = 4;
+    public static final long DEFAULT_REFILL_INTERVAL_MS = 500;
+    public static final long DEFAULT_INITIAL_BACKOFF_MS = 1000;
+    public static final long DEFAULT_MAX_BACKOFF_MS = 30000;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final long mRepeatWindowMs;
+    private final int mBucketCapacity;
+    private final long mRefillIntervalMs;
+    private final long mInitialBackoffMs;
+    private final long mMaxBackoffMs;
+    // URL hash to the time it was last hinted, least recently hinted first.
+    private final LinkedHashMap<Long, Long> mRecentHints;
+
+    private double mTokens;
+    private long mLastRefillMs = Long.MIN_VALUE;
+    private long mBackoffMs;
+    private long mBackoffUntilMs = Long.MIN_VALUE;
+
+    public MayLaunchUrlThrottler() {
+        this(DEFAULT_REPEAT_WINDOW_MS, DEFAULT_MAX_RECENT_HINTS, DEFAULT_BUCKET_CAPACITY,
+                DEFAULT_REFILL_INTERVAL_MS, DEFAULT_INITIAL_BACKOFF_MS, DEFAULT_MAX_BACKOFF_MS);
+    }
+
+    public MayLaunchUrlThrottler(long repeatWindowMs, int maxRecentHints,
+            int bucketCapacity, long refillIntervalMs, long initialBackoffMs, long maxBackoffMs) {
+        mRepeatWindowMs = repeatWindowMs;
+        mBucketCapacity = bucketCapacity;
+        mRefillIntervalMs = refillIntervalMs;
+        mInitialBackoffMs = initialBackoffMs;
+        mMaxBackoffMs = maxBackoffMs;
+        mTokens = bucketCapacity;
+        mRecentHints = new LinkedHashMap<Long, Long>(maxRecentHints * 2, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+                return size() > maxRecentHints;
+            }
+        };
+    }
+
+    /**
+     * Checks whether a hint for the URL may be sent now, and if so records it as sent.
+     *
+     * @return true if the caller should call mayLaunchUrl.
+     */
+    public synchronized boolean tryAcquire(String url, long nowMs) {
+        if (nowMs < mBackoffUntilMs) return false;
+
+        long key = hash(normalize(url));
+        Long lastHintMs = mRecentHints.get(key);
+        if (lastHintMs != null && nowMs - lastHintMs < mRepeatWindowMs) return false;
+
+        refill(nowMs);
+        if (mTokens < 1) return false;
+        mTokens -= 1;
+        mRecentHints.put(key, nowMs);
+        return true;
+    }
+
+    /**
+     * Reports whether the browser accepted a hint allowed by {@link #tryAcquire(String, long)}.
+     */
+    public synchronized void onResult(boolean accepted, long nowMs) {
+        if (accepted) {
+            mBackoffMs = 0;
+            mBackoffUntilMs = Long.MIN_VALUE;
+            return;
+        }
+        mBackoffMs = mBackoffMs == 0 ? mInitialBackoffMs : Math.min(mBackoffMs * 2, mMaxBackoffMs);
+        mBackoffUntilMs = nowMs + mBackoffMs;
+    }
+
+    /**
+     * Forgets every recent hint, e.g. after the browser connection has been rebuilt.
+     */
+    public synchronized void reset() {
+        mRecentHints.clear();
+        mTokens = mBucketCapacity;
+        mLastRefillMs = Long.MIN_VALUE;
+        mBackoffMs = 0;
+        mBackoffUntilMs = Long.MIN_VALUE;
+    }
+
+    private void refill(long nowMs) {
+        if (mLastRefillMs != Long.MIN_VALUE) {
+            mTokens = Math.min(mBucketCapacity,
+                    mTokens + (nowMs - mLastRefillMs) / (double) mRefillIntervalMs);
+        }
+        mLastRefillMs = nowMs;
+    }
+
+    /**
+     * Lower-cases the scheme and host and drops the fragment and a bare trailing slash, so that
+     * URLs the browser would load identically share a key.
+     */
+    static String normalize(String url) {
+        String result = url.trim();
+        int fragment = result.indexOf('#');
+        if (fragment >= 0) result = result.substring(0, fragment);
+
+        int schemeEnd = result.indexOf("://");
+        if (schemeEnd >= 0) {
+            int pathStart = result.indexOf('/', schemeEnd + 3);
+            if (pathStart < 0) {
+                result = result.toLowerCase(Locale.US);
+            } else {
+                String path = result.substring(pathStart);
+                result = result.substring(0, pathStart).toLowerCase(Locale.US)
+                        + ("/".equals(path) ? "" : path);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 64-bit FNV-1a, which is cheap and makes collisions between recent URLs negligible.
+     */
+    static long hash(String value) {
+        long hash = FNV_OFFSET_BASIS;
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        return hash;
+    }
+}
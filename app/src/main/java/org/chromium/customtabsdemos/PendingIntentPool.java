@@ -0,0 +1,105 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.app.PendingIntent;
+import android.content.Context;
+import android.content.Intent;
+import android.util.Log;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Creates the PendingIntents for the {@link ActionBroadcastReceiver} callbacks once per process.
+ *
+ * <p>Each PendingIntent.getBroadcast call is a binder call to the ActivityManager. The intents
+ * for the action button, the menu items and the toolbar items only differ by their action source
+ * id, so they are created once, keyed by that id and the PendingIntent flags, and reused by
+ * later launches.
+ *
+ * <p>This is threadsafe.
+ */
+public final class PendingIntentPool {
+    private static final String TAG = "PendingIntentPool";
+    private static final boolean DEBUG = false;
+
+    private static PendingIntentPool sInstance;
+
+    private final Context mContext;
+    private final ConcurrentHashMap<Long, PendingIntent> mPool = new ConcurrentHashMap<>();
+    private final AtomicInteger mHits = new AtomicInteger();
+    private final AtomicInteger mMisses = new AtomicInteger();
+
+    private PendingIntentPool(Context context) {
+        mContext = context;
+    }
+
+    public static synchronized PendingIntentPool getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new PendingIntentPool(context.getApplicationContext());
+        }
+        return sInstance;
+    }
+
+    /**
+     * @return A broadcast PendingIntent to the {@link ActionBroadcastReceiver}, created on first
+     *         use.
+     */
+    public PendingIntent getActionBroadcast(int actionSourceId, int flags) {
+        long key = key(actionSourceId, flags);
+        PendingIntent pendingIntent = mPool.get(key);
+        if (pendingIntent != null) {
+            mHits.incrementAndGet();
+            return pendingIntent;
+        }
+        return mPool.computeIfAbsent(key, k -> {
+            mMisses.incrementAndGet();
+            logd("getActionBroadcast create actionSourceId=" + actionSourceId);
+            Intent actionIntent = new Intent(mContext, ActionBroadcastReceiver.class);
+            actionIntent.putExtra(ActionBroadcastReceiver.KEY_ACTION_SOURCE, actionSourceId);
+            return PendingIntent.getBroadcast(mContext, actionSourceId, actionIntent, flags);
+        });
+    }
+
+    /**
+     * Forgets the pooled PendingIntents. They are not cancelled, since open tabs may still use
+     * them.
+     */
+    public void clear() {
+        mPool.clear();
+    }
+
+    /** @return Requests served from the pool. */
+    public int getHitCount() {
+        return mHits.get();
+    }
+
+    /** @return Requests that had to create a PendingIntent. */
+    public int getMissCount() {
+        return mMisses.get();
+    }
+
+    public String dump() {
+        return "size=" + mPool.size() + " hits=" + mHits.get() + " misses=" + mMisses.get();
+    }
+
+    private static long key(int actionSourceId, int flags) {
+        return ((long) actionSourceId << 32) | (flags & 0xffffffffL);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
@@ -0,0 +1,178 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.content.Context;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+
+import org.chromium.customtabsdemos.core.ProviderScores;
+import org.chromium.customtabsdemos.core.ProviderSelector;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Keeps the {@link ProviderScores} of the Custom Tabs providers across restarts.
+ *
+ * <p>{@link CustomTabsConnectionManager} records the bind, warmup call and launch to TAB_SHOWN
+ * latencies of the providers it connects to, and the bind time of the other candidates when
+ * probing is enabled.
+ * When the default browser cannot be used, {@link CustomTabsHelper} asks {@link #getRanking()} for
+ * the fastest candidate instead of taking the first one, unless the custom_tabs_rank_providers
+ * resource disables it.
+ *
+ * <p>The scores are read in the background when the instance is created; there is no ranking
+ * until then. Every change is applied after the read, on the same background thread, and written
+ * after it.
+ *
+ * <p>This is threadsafe.
+ */
+public final class ProviderScoreboard {
+    private static final String TAG = "ProviderScoreboard";
+    private static final boolean DEBUG = false;
+
+    private static final String FILE_NAME = "custom_tabs_provider.scores";
+
+    private static final Executor sExecutor = Executors.newSingleThreadExecutor();
+    private static ProviderScoreboard sInstance;
+
+    private final Context mAppContext;
+    private final ProviderScores mScores = new ProviderScores();
+    private final boolean mRankingEnabled;
+    private final AtomicBoolean mSavePending = new AtomicBoolean();
+    private final CountDownLatch mLoaded = new CountDownLatch(1);
+
+    private ProviderScoreboard(Context appContext) {
+        mAppContext = appContext;
+        mRankingEnabled = appContext.getResources().getBoolean(R.bool.custom_tabs_rank_providers);
+        // Often created on the main thread, by the first resolution of the provider.
+        sExecutor.execute(this::load);
+    }
+
+    public static synchronized ProviderScoreboard getInstance(Context context) {
+        if (sInstance == null) sInstance = new ProviderScoreboard(context.getApplicationContext());
+        return sInstance;
+    }
+
+    /**
+     * @return The ranking to pick a provider with, or null if ranking is disabled or the scores
+     *         have not been read yet.
+     */
+    @Nullable
+    public ProviderSelector.Ranking getRanking() {
+        return mRankingEnabled && mLoaded.getCount() == 0 ? mScores : null;
+    }
+
+    public boolean isRankingEnabled() {
+        return mRankingEnabled;
+    }
+
+    /**
+     * Blocks until the scores have been read, so must not be called on the main thread.
+     */
+    public void awaitLoaded() {
+        try {
+            mLoaded.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Adds a sample for the provider, see {@link ProviderScores#record(String, int, long)}.
+     */
+    public void record(@Nullable String packageName, int metric, long latencyMs) {
+        if (packageName == null) return;
+        logd("record " + packageName + " metric=" + metric + " latencyMs=" + latencyMs);
+        sExecutor.execute(() -> {
+            mScores.record(packageName, metric, latencyMs);
+            scheduleSave();
+        });
+    }
+
+    /**
+     * Forgets the provider, e.g. once it is uninstalled.
+     */
+    public void remove(String packageName) {
+        sExecutor.execute(() -> {
+            mScores.remove(packageName);
+            scheduleSave();
+        });
+    }
+
+    public ProviderScores getScores() {
+        return mScores;
+    }
+
+    public String dump() {
+        return mScores.toString();
+    }
+
+    private void scheduleSave() {
+        // Samples recorded before the write starts are part of it.
+        if (mSavePending.compareAndSet(false, true)) sExecutor.execute(this::save);
+    }
+
+    private void load() {
+        File file = getFile();
+        if (file.exists()) {
+            try (DataInputStream in = new DataInputStream(new AtomicFile(file).openRead())) {
+                mScores.read(in);
+                logd("load " + mScores);
+            } catch (IOException e) {
+                loge("load failed " + e);
+            }
+        }
+        mLoaded.countDown();
+    }
+
+    private void save() {
+        mSavePending.set(false);
+        AtomicFile atomicFile = new AtomicFile(getFile());
+        FileOutputStream out = null;
+        try {
+            out = atomicFile.startWrite();
+            DataOutputStream data = new DataOutputStream(out);
+            mScores.write(data);
+            data.flush();
+            atomicFile.finishWrite(out);
+        } catch (IOException e) {
+            loge("save failed " + e);
+            if (out != null) atomicFile.failWrite(out);
+        }
+    }
+
+    private File getFile() {
+        // Latencies are specific to this device, so keep the file out of backups.
+        return new File(mAppContext.getNoBackupFilesDir(), FILE_NAME);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+
+    private static void loge(String msg) {
+        Log.e(TAG, msg);
+    }
+}
@@ -0,0 +1,255 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import static android.content.pm.PackageManager.MATCH_DEFAULT_ONLY;
+
+import android.content.Context;
+import android.content.Intent;
+import android.content.pm.PackageInfo;
+import android.content.pm.PackageManager;
+import android.content.pm.ResolveInfo;
+import android.net.Uri;
+import android.text.TextUtils;
+import android.util.AtomicFile;
+import android.util.Log;
+
+import androidx.annotation.Nullable;
+import androidx.core.content.pm.PackageInfoCompat;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * The result of a Custom Tabs provider resolution, which can be persisted so that a new process
+ * does not have to query the PackageManager again.
+ *
+ * <p>The file records the chosen provider, the default VIEW handler, the versionCode and
+ * lastUpdateTime of every candidate, and every package implementing the Custom Tabs service. It is
+ * only trusted while all of those still match, which costs a single service query, so a provider
+ * installed while the app was not running is noticed. A resolution that found no provider is never
+ * persisted.
+ *
+ * <p>Loading reads the disk, so it must be done on a background thread.
+ */
+final class ProviderSnapshot {
+    private static final String TAG = "ProviderSnapshot";
+    private static final boolean DEBUG = false;
+
+    private static final String FILE_NAME = "custom_tabs_provider.snapshot";
+    private static final int MAGIC = 0x43545053;
+    private static final int VERSION = 2;
+
+    // Serializes writes and deletes, so that a clear() always wins over an earlier save().
+    private static final ExecutorService sExecutor = Executors.newSingleThreadExecutor();
+
+    @Nullable
+    final String mPackageNameToUse;
+    @Nullable
+    final String mDefaultViewHandler;
+    final List<String> mCandidates;
+    // Every package with a Custom Tabs service, VIEW handler or not.
+    final Set<String> mServicePackages;
+
+    ProviderSnapshot(@Nullable String packageNameToUse, @Nullable String defaultViewHandler,
+            List<String> candidates, Set<String> servicePackages) {
+        mPackageNameToUse = packageNameToUse;
+        mDefaultViewHandler = defaultViewHandler;
+        mCandidates = Collections.unmodifiableList(new ArrayList<>(candidates));
+        mServicePackages = Collections.unmodifiableSet(new HashSet<>(servicePackages));
+    }
+
+    /**
+     * Reads the persisted snapshot and checks it against the installed packages.
+     *
+     * @return The snapshot, or null if there is none, it found no provider or it no longer
+     *         matches the device.
+     */
+    @Nullable
+    static ProviderSnapshot load(Context context) {
+        File file = getFile(context);
+        if (!file.exists()) return null;
+
+        AtomicFile atomicFile = new AtomicFile(file);
+        try (DataInputStream in = new DataInputStream(atomicFile.openRead())) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                loge("load unknown format");
+                return null;
+            }
+            String packageNameToUse = readNullableString(in);
+            String defaultViewHandler = readNullableString(in);
+            if (packageNameToUse == null) return null;
+            int count = in.readInt();
+            List<String> candidates = new ArrayList<>(count);
+            PackageManager pm = context.getPackageManager();
+            for (int i = 0; i < count; i++) {
+                String packageName = in.readUTF();
+                long versionCode = in.readLong();
+                long lastUpdateTime = in.readLong();
+                PackageInfo info = getPackageInfo(pm, packageName);
+                if (info == null
+                        || PackageInfoCompat.getLongVersionCode(info) != versionCode
+                        || info.lastUpdateTime != lastUpdateTime) {
+                    logd("load stale candidate=" + packageName);
+                    return null;
+                }
+                candidates.add(packageName);
+            }
+            int serviceCount = in.readInt();
+            Set<String> servicePackages = new HashSet<>(serviceCount * 2);
+            for (int i = 0; i < serviceCount; i++) {
+                servicePackages.add(in.readUTF());
+            }
+            if (!servicePackages.equals(queryServicePackages(pm))) {
+                logd("load Custom Tabs services changed");
+                return null;
+            }
+            if (!TextUtils.equals(defaultViewHandler, queryDefaultViewHandler(pm))) {
+                logd("load default VIEW handler changed");
+                return null;
+            }
+            logd("load packageNameToUse=" + packageNameToUse);
+            return new ProviderSnapshot(packageNameToUse, defaultViewHandler, candidates,
+                    servicePackages);
+        } catch (IOException e) {
+            loge("load failed " + e);
+            return null;
+        }
+    }
+
+    /**
+     * Persists this snapshot in the background, unless it found no provider.
+     *
+     * @return Completes once the file is written.
+     */
+    Future<?> save(Context context) {
+        final Context appContext = context.getApplicationContext();
+        return sExecutor.submit(() -> {
+            if (mPackageNameToUse != null) write(appContext);
+        });
+    }
+
+    /**
+     * Deletes the persisted snapshot in the background.
+     */
+    static void clear(Context context) {
+        final Context appContext = context.getApplicationContext();
+        sExecutor.execute(() -> new AtomicFile(getFile(appContext)).delete());
+    }
+
+    /**
+     * @return The package of the default VIEW handler, or null if the user has not picked one.
+     */
+    @Nullable
+    static String queryDefaultViewHandler(PackageManager pm) {
+        Intent activityIntent =
+                new Intent(Intent.ACTION_VIEW, Uri.parse(CustomTabsHelper.DEFAULT_LOOKUP_DOMAIN));
+        ResolveInfo info = pm.resolveActivity(activityIntent, MATCH_DEFAULT_ONLY);
+        return info == null ? null : info.activityInfo.packageName;
+    }
+
+    /**
+     * @return Every package implementing the Custom Tabs service, in one query.
+     */
+    static Set<String> queryServicePackages(PackageManager pm) {
+        Intent serviceIntent = new Intent(CustomTabsHelper.ACTION_CUSTOM_TABS_CONNECTION);
+        List<ResolveInfo> services = pm.queryIntentServices(serviceIntent, 0);
+        Set<String> packages = new HashSet<>(services.size() * 2);
+        for (ResolveInfo info : services) {
+            if (info.serviceInfo != null) packages.add(info.serviceInfo.packageName);
+        }
+        return packages;
+    }
+
+    private void write(Context context) {
+        PackageManager pm = context.getPackageManager();
+        AtomicFile atomicFile = new AtomicFile(getFile(context));
+        FileOutputStream out = null;
+        try {
+            out = atomicFile.startWrite();
+            DataOutputStream data = new DataOutputStream(out);
+            data.writeInt(MAGIC);
+            data.writeInt(VERSION);
+            writeNullableString(data, mPackageNameToUse);
+            writeNullableString(data, mDefaultViewHandler);
+            data.writeInt(mCandidates.size());
+            for (String packageName : mCandidates) {
+                PackageInfo info = getPackageInfo(pm, packageName);
+                if (info == null) {
+                    // Uninstalled since the resolution, which will invalidate us anyway.
+                    atomicFile.failWrite(out);
+                    return;
+                }
+                data.writeUTF(packageName);
+                data.writeLong(PackageInfoCompat.getLongVersionCode(info));
+                data.writeLong(info.lastUpdateTime);
+            }
+            data.writeInt(mServicePackages.size());
+            for (String packageName : mServicePackages) {
+                data.writeUTF(packageName);
+            }
+            data.flush();
+            atomicFile.finishWrite(out);
+            logd("save packageNameToUse=" + mPackageNameToUse);
+        } catch (IOException e) {
+            loge("save failed " + e);
+            if (out != null) atomicFile.failWrite(out);
+        }
+    }
+
+    @Nullable
+    private static PackageInfo getPackageInfo(PackageManager pm, String packageName) {
+        try {
+            return pm.getPackageInfo(packageName, 0);
+        } catch (PackageManager.NameNotFoundException e) {
+            return null;
+        }
+    }
+
+    private static File getFile(Context context) {
+        // Package versions are specific to this device, so keep the file out of backups.
+        return new File(context.getNoBackupFilesDir(), FILE_NAME);
+    }
+
+    @Nullable
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullableString(DataOutputStream out, @Nullable String value)
+            throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+
+    private static void loge(String msg) {
+        Log.e(TAG, msg);
+    }
+}
@@ -81,7 +81,8 @@ public class ServiceConnectionActivity extends AppCompatActivity
             mCustomTabActivityHelper.mayLaunchUrl(uri, null, null);
         } else if (viewId == R.id.start_custom_tab) {
             log("onClick openCustomTab");
-            mCustomTabActivityHelper.openCustomTab(this, null, uri);
+            mCustomTabActivityHelper.openCustomTab(this, uri, new WebviewFallback(),
+                    CustomTabsLaunchDispatcher.DEFAULT_WINDOW_MS);
         }
     }
 
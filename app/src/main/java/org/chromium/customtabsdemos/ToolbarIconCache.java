@@ -0,0 +1,174 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.drawable.Drawable;
+import android.util.Log;
+import android.util.LruCache;
+
+import androidx.annotation.DrawableRes;
+import androidx.core.content.res.ResourcesCompat;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+
+/**
+ * Decodes the icons handed to Custom Tabs at the size the toolbar shows them, and keeps them in a
+ * process-wide cache sized in bytes.
+ *
+ * <p>Bitmap resources are subsampled while decoding and then scaled to the exact height, and
+ * other drawables, e.g. vectors, are rasterized at that height. The aspect ratio is kept, within
+ * the twice-as-wide limit of action buttons. {@link #prefetch(int...)} prepares icons on a
+ * background thread so that {@link #get(int)} is a cache hit.
+ *
+ * <p>This is threadsafe. Returned bitmaps are shared and must not be modified or recycled.
+ */
+public class ToolbarIconCache {
+    private static final String TAG = "ToolbarIconCache";
+    private static final boolean DEBUG = false;
+
+    /** Height of the icons in the Custom Tabs toolbar. */
+    public static final int TOOLBAR_ICON_SIZE_DP = 24;
+    private static final int MAX_CACHE_BYTES = 4 * 1024 * 1024;
+
+    private static ToolbarIconCache sInstance;
+
+    private final Resources mResources;
+    private final Executor mExecutor = Executors.newSingleThreadExecutor();
+    // Keyed by resource id and height, see key().
+    private final LruCache<Long, Bitmap> mCache;
+
+    private ToolbarIconCache(Context context) {
+        mResources = context.getApplicationContext().getResources();
+        int maxBytes = (int) Math.min(Runtime.getRuntime().maxMemory() / 64, MAX_CACHE_BYTES);
+        mCache = new LruCache<Long, Bitmap>(maxBytes) {
+            @Override
+            protected int sizeOf(Long key, Bitmap bitmap) {
+                return bitmap.getAllocationByteCount();
+            }
+        };
+    }
+
+    /**
+     * @return The process-wide icon cache.
+     */
+    public static synchronized ToolbarIconCache getInstance(Context context) {
+        if (sInstance == null) sInstance = new ToolbarIconCache(context);
+        return sInstance;
+    }
+
+    /**
+     * @return The height of toolbar icons on this display, in pixels.
+     */
+    public int getToolbarIconSizePx() {
+        return Math.round(TOOLBAR_ICON_SIZE_DP * mResources.getDisplayMetrics().density);
+    }
+
+    /**
+     * Loads the icons at the toolbar size on a background thread.
+     */
+    public void prefetch(@DrawableRes int... resIds) {
+        int heightPx = getToolbarIconSizePx();
+        for (int resId : resIds) {
+            if (mCache.get(key(resId, heightPx)) != null) continue;
+            mExecutor.execute(() -> get(resId, heightPx));
+        }
+    }
+
+    /**
+     * @return The icon at the toolbar size, decoded on the calling thread if it is not cached.
+     */
+    public Bitmap get(@DrawableRes int resId) {
+        return get(resId, getToolbarIconSizePx());
+    }
+
+    /**
+     * @return The icon at the given height, decoded on the calling thread if it is not cached.
+     */
+    public Bitmap get(@DrawableRes int resId, int heightPx) {
+        long key = key(resId, heightPx);
+        Bitmap bitmap = mCache.get(key);
+        if (bitmap != null) return bitmap;
+
+        // Two threads may both load a missing icon; the second put simply replaces the first.
+        bitmap = load(resId, heightPx);
+        mCache.put(key, bitmap);
+        logd("load resId=" + resId + " " + bitmap.getWidth() + "x" + bitmap.getHeight()
+                + " cached=" + mCache.size() + "B");
+        return bitmap;
+    }
+
+    private Bitmap load(int resId, int heightPx) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeResource(mResources, resId, options);
+        if (options.outWidth > 0 && options.outHeight > 0) {
+            options.inJustDecodeBounds = false;
+            options.inSampleSize = computeSampleSize(options.outHeight, heightPx);
+            Bitmap decoded = BitmapFactory.decodeResource(mResources, resId, options);
+            if (decoded != null) return scaleToHeight(decoded, heightPx);
+        }
+
+        // Not a bitmap, e.g. a vector drawable.
+        Drawable drawable = ResourcesCompat.getDrawable(mResources, resId, null);
+        if (drawable == null) throw new Resources.NotFoundException("Drawable " + resId);
+        int width = scaledWidth(drawable.getIntrinsicWidth(), drawable.getIntrinsicHeight(),
+                heightPx);
+        Bitmap bitmap = Bitmap.createBitmap(width, heightPx, Bitmap.Config.ARGB_8888);
+        drawable.setBounds(0, 0, width, heightPx);
+        drawable.draw(new Canvas(bitmap));
+        return bitmap;
+    }
+
+    private static Bitmap scaleToHeight(Bitmap bitmap, int heightPx) {
+        int width = scaledWidth(bitmap.getWidth(), bitmap.getHeight(), heightPx);
+        if (bitmap.getHeight() == heightPx && bitmap.getWidth() == width) return bitmap;
+        Bitmap scaled = Bitmap.createScaledBitmap(bitmap, width, heightPx, true);
+        if (scaled != bitmap) bitmap.recycle();
+        return scaled;
+    }
+
+    /**
+     * @return The width keeping the aspect ratio, at most twice the height.
+     */
+    private static int scaledWidth(int width, int height, int heightPx) {
+        if (width <= 0 || height <= 0) return heightPx;
+        return Math.max(1, Math.min(Math.round(width * (float) heightPx / height), 2 * heightPx));
+    }
+
+    /**
+     * @return The largest power of two that keeps the decoded height at least the requested one.
+     */
+    static int computeSampleSize(int height, int requestedHeight) {
+        int sampleSize = 1;
+        if (requestedHeight <= 0) return sampleSize;
+        while (height / (sampleSize * 2) >= requestedHeight) {
+            sampleSize *= 2;
+        }
+        return sampleSize;
+    }
+
+    private static long key(int resId, int heightPx) {
+        return ((long) resId << 32) | (heightPx & 0xffffffffL);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
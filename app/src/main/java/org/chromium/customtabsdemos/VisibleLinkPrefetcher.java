@@ -0,0 +1,210 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package org.chromium.customtabsdemos;
+
+import android.net.Uri;
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.util.SparseArray;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsService;
+import androidx.recyclerview.widget.RecyclerView;
+
+import org.chromium.customtabsdemos.core.LinkRanker;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Predicts which link of a list the user is going to open next, and hints it to the browser with
+ * {@link CustomTabActivityHelper#mayLaunchUrl(Uri, Bundle, List)}.
+ *
+ * <p>The visible items are ranked by {@link LinkRanker}, by how long they have been on screen and
+ * how close they are to the top of the list. The best one is sent as the likely Uri and the next
+ * ones as otherLikelyBundles. Nothing is sent while the list is flinging, and hints are debounced
+ * until the scroll settles. While the list rests, the ranking is refreshed as the dwell times grow,
+ * and a new hint is sent whenever it changes.
+ */
+public class VisibleLinkPrefetcher extends RecyclerView.OnScrollListener {
+    private static final String TAG = "VisibleLinkPrefetcher";
+    private static final boolean DEBUG = false;
+
+    public static final int DEFAULT_MAX_OTHER_LIKELY = 3;
+
+    /**
+     * Maps a list item to the link it opens.
+     */
+    public interface UrlProvider {
+        /**
+         * @return The Uri opened by the item at the adapter position, or null if it has none.
+         */
+        @Nullable
+        Uri getUrl(int adapterPosition);
+    }
+
+    private final CustomTabActivityHelper mHelper;
+    private final UrlProvider mUrlProvider;
+    private final int mMaxOtherLikely;
+    private final LinkRanker mRanker = new LinkRanker();
+    private final Handler mHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mPrefetchRunnable = () -> prefetch(false);
+
+    @Nullable
+    private RecyclerView mRecyclerView;
+
+    public VisibleLinkPrefetcher(CustomTabActivityHelper helper, UrlProvider urlProvider) {
+        this(helper, urlProvider, DEFAULT_MAX_OTHER_LIKELY);
+    }
+
+    public VisibleLinkPrefetcher(CustomTabActivityHelper helper, UrlProvider urlProvider,
+            int maxOtherLikely) {
+        mHelper = helper;
+        mUrlProvider = urlProvider;
+        mMaxOtherLikely = maxOtherLikely;
+    }
+
+    /**
+     * Starts watching the list. The first hint is sent once the list has been laid out.
+     */
+    public void attach(RecyclerView recyclerView) {
+        detach();
+        mRecyclerView = recyclerView;
+        recyclerView.addOnScrollListener(this);
+        recyclerView.post(() -> {
+            updateVisibleItems();
+            schedulePrefetch();
+        });
+    }
+
+    /**
+     * Stops watching the list, e.g. from onStop.
+     */
+    public void detach() {
+        if (mRecyclerView == null) return;
+        mRecyclerView.removeOnScrollListener(this);
+        mRecyclerView = null;
+        mHandler.removeCallbacks(mPrefetchRunnable);
+        mRanker.reset();
+    }
+
+    /**
+     * Hints the best candidates now, even if they were hinted before, e.g. once the service has
+     * connected.
+     */
+    public void prefetchNow() {
+        mHandler.removeCallbacks(mPrefetchRunnable);
+        updateVisibleItems();
+        prefetch(true);
+    }
+
+    @Override
+    public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+        long now = SystemClock.uptimeMillis();
+        if (newState == RecyclerView.SCROLL_STATE_SETTLING) {
+            // A fling; the visible items are about to change.
+            mRanker.onScrolled(true, now);
+            mHandler.removeCallbacks(mPrefetchRunnable);
+        } else if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+            updateVisibleItems();
+            mRanker.onScrollIdle(now);
+            schedulePrefetch();
+        }
+    }
+
+    @Override
+    public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+        updateVisibleItems();
+        mRanker.onScrolled(recyclerView.getScrollState() == RecyclerView.SCROLL_STATE_SETTLING,
+                SystemClock.uptimeMillis());
+        schedulePrefetch();
+    }
+
+    private void schedulePrefetch() {
+        long delay = mRanker.getHintDelayMs(SystemClock.uptimeMillis());
+        mHandler.removeCallbacks(mPrefetchRunnable);
+        if (delay >= 0) mHandler.postDelayed(mPrefetchRunnable, delay);
+    }
+
+    private void updateVisibleItems() {
+        if (mRecyclerView == null) return;
+        int[] positions = new int[mRecyclerView.getChildCount()];
+        int count = 0;
+        for (int i = 0; i < positions.length; i++) {
+            int position = mRecyclerView.getChildAdapterPosition(mRecyclerView.getChildAt(i));
+            if (position != RecyclerView.NO_POSITION) positions[count++] = position;
+        }
+        int[] visible = new int[count];
+        System.arraycopy(positions, 0, visible, 0, count);
+        mRanker.setVisible(visible, SystemClock.uptimeMillis());
+    }
+
+    private void prefetch(boolean force) {
+        if (mRecyclerView == null || mRecyclerView.getHeight() == 0) return;
+        long now = SystemClock.uptimeMillis();
+        if (!force) {
+            long delay = mRanker.getHintDelayMs(now);
+            if (delay != 0) {
+                if (delay > 0) mHandler.postDelayed(mPrefetchRunnable, delay);
+                return;
+            }
+        }
+
+        RecyclerView recyclerView = mRecyclerView;
+        SparseArray<Uri> uris = new SparseArray<>();
+        List<LinkRanker.Item> items = new ArrayList<>();
+        for (int i = 0; i < recyclerView.getChildCount(); i++) {
+            View child = recyclerView.getChildAt(i);
+            int position = recyclerView.getChildAdapterPosition(child);
+            if (position == RecyclerView.NO_POSITION) continue;
+            Uri uri = mUrlProvider.getUrl(position);
+            if (uri == null) continue;
+            uris.put(position, uri);
+            items.add(new LinkRanker.Item(position, child.getTop(), child.getBottom()));
+        }
+        int[] ranking = mRanker.rank(items, recyclerView.getHeight(), now);
+        // The dwell times keep growing while the list rests, which may reorder it.
+        mHandler.removeCallbacks(mPrefetchRunnable);
+        if (mRanker.needsRerank(now)) {
+            mHandler.postDelayed(mPrefetchRunnable, LinkRanker.RERANK_MS);
+        }
+        if (ranking.length == 0) return;
+
+        int others = Math.min(mMaxOtherLikely, ranking.length - 1);
+        if (!mRanker.markHinted(ranking, others + 1) && !force) return;
+
+        List<Bundle> otherLikelyBundles = null;
+        if (others > 0) {
+            otherLikelyBundles = new ArrayList<>(others);
+            for (int i = 1; i <= others; i++) {
+                Bundle bundle = new Bundle();
+                bundle.putParcelable(CustomTabsService.KEY_URL, uris.get(ranking[i]));
+                otherLikelyBundles.add(bundle);
+            }
+        }
+        Uri uri = uris.get(ranking[0]);
+        logd("prefetch uri=" + uri + " others=" + others);
+        mHelper.mayLaunchUrl(uri, null, otherLikelyBundles);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
@@ -0,0 +1,169 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos;
+
+import android.app.Activity;
+import android.content.Context;
+import android.content.MutableContextWrapper;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+import android.view.ViewGroup;
+import android.webkit.WebSettings;
+import android.webkit.WebView;
+import android.webkit.WebViewClient;
+
+import java.util.ArrayDeque;
+
+/**
+ * Keeps pre-created WebViews for {@link WebviewActivity}.
+ *
+ * <p>The first WebView of a process pays the initialization of the WebView provider, often
+ * hundreds of milliseconds. {@link #prewarmOnIdle()} creates up to {@link #DEFAULT_MAX_SIZE}
+ * WebViews when the main thread is idle, one per idle pass. They are created in a
+ * {@link MutableContextWrapper} around the application, which is pointed at the activity that
+ * acquires one. On release, a WebView is cleaned up and returned, or destroyed if the pool is
+ * full.
+ *
+ * <p>Must be used on the main thread, except for {@link #getInstance(Context)} and
+ * {@link #prewarmOnIdle()}.
+ */
+public final class WebViewPool {
+    private static final String TAG = "WebViewPool";
+    private static final boolean DEBUG = false;
+
+    public static final int DEFAULT_MAX_SIZE = 2;
+    private static final String BLANK_URL = "about:blank";
+
+    private static WebViewPool sInstance;
+
+    private final Context mApplicationContext;
+    private final int mMaxSize;
+    private final ArrayDeque<WebView> mPool = new ArrayDeque<>();
+    private boolean mPrewarming;
+    private int mHits;
+    private int mMisses;
+
+    private WebViewPool(Context applicationContext, int maxSize) {
+        mApplicationContext = applicationContext;
+        mMaxSize = maxSize;
+    }
+
+    public static synchronized WebViewPool getInstance(Context context) {
+        if (sInstance == null) {
+            sInstance = new WebViewPool(context.getApplicationContext(), DEFAULT_MAX_SIZE);
+        }
+        return sInstance;
+    }
+
+    /**
+     * Fills the pool when the main thread is idle. May be called on any thread.
+     */
+    public void prewarmOnIdle() {
+        Looper.getMainLooper().getQueue().addIdleHandler(() -> {
+            if (mPrewarming) return false;
+            mPrewarming = true;
+            Looper.myQueue().addIdleHandler(this::prewarmOne);
+            return false;
+        });
+    }
+
+    /**
+     * Creates one WebView per idle pass, so that no single frame pays for more than one.
+     *
+     * @return true to be called again on the next idle pass.
+     */
+    private boolean prewarmOne() {
+        if (mPool.size() >= mMaxSize) {
+            mPrewarming = false;
+            return false;
+        }
+        long startMs = SystemClock.uptimeMillis();
+        mPool.addLast(create());
+        log("prewarmOne size=" + mPool.size()
+                + " tookMs=" + (SystemClock.uptimeMillis() - startMs));
+        return true;
+    }
+
+    /**
+     * @return A WebView whose context is the activity, pooled if one is available.
+     */
+    public WebView acquire(Activity activity) {
+        WebView webView = mPool.pollFirst();
+        if (webView == null) {
+            mMisses++;
+            webView = create();
+        } else {
+            mHits++;
+            webView.onResume();
+            webView.clearHistory();
+        }
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(activity);
+        logd("acquire hits=" + mHits + " misses=" + mMisses);
+        return webView;
+    }
+
+    /**
+     * Cleans the WebView and returns it to the pool, or destroys it if the pool is full. The
+     * WebView must not be used afterwards.
+     */
+    public void release(WebView webView) {
+        ViewGroup parent = (ViewGroup) webView.getParent();
+        if (parent != null) parent.removeView(webView);
+        // Drops the activity, which is being destroyed.
+        ((MutableContextWrapper) webView.getContext()).setBaseContext(mApplicationContext);
+        if (mPool.size() >= mMaxSize) {
+            webView.destroy();
+            return;
+        }
+        webView.stopLoading();
+        webView.setWebViewClient(new WebViewClient());
+        webView.setWebChromeClient(null);
+        resetSettings(webView.getSettings());
+        webView.loadUrl(BLANK_URL);
+        webView.clearHistory();
+        webView.onPause();
+        mPool.addLast(webView);
+    }
+
+    /**
+     * Destroys the pooled WebViews, e.g. when memory is low.
+     */
+    public void clear() {
+        WebView webView;
+        while ((webView = mPool.pollFirst()) != null) {
+            webView.destroy();
+        }
+    }
+
+    public String dump() {
+        return "size=" + mPool.size() + " hits=" + mHits + " misses=" + mMisses;
+    }
+
+    private WebView create() {
+        return new WebView(new MutableContextWrapper(mApplicationContext));
+    }
+
+    private static void resetSettings(WebSettings settings) {
+        settings.setJavaScriptEnabled(false);
+    }
+
+    private static void log(String msg) {
+        Log.i(TAG, msg);
+    }
+
+    private static void logd(String msg) {
+        if (DEBUG) Log.d(TAG, msg);
+    }
+}
@@ -16,6 +16,9 @@ package org.chromium.customtabsdemos;
 
 import android.os.Bundle;
 import android.view.MenuItem;
+import android.view.ViewGroup;
+import android.webkit.WebResourceRequest;
+import android.webkit.WebResourceResponse;
 import android.webkit.WebSettings;
 import android.webkit.WebView;
 import android.webkit.WebViewClient;
@@ -24,18 +27,25 @@ import androidx.appcompat.app.AppCompatActivity;
 
 /**
  * This Activity is used as a fallback when there is no browser installed that supports
- * Chrome Custom Tabs
+ * Chrome Custom Tabs. Its WebView comes from the {@link WebViewPool}, and prefetched pages are
+ * served from the {@link FallbackContentCache}.
  */
 public class WebviewActivity extends AppCompatActivity {
     public static final String EXTRA_URL = "extra.url";
 
+    private WebView mWebView;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_webview);
         String url = getIntent().getStringExtra(EXTRA_URL);
-        WebView webView = findViewById(R.id.webview);
-        webView.setWebViewClient(new WebViewClient());
+        WebView webView = WebViewPool.getInstance(this).acquire(this);
+        mWebView = webView;
+        ViewGroup container = findViewById(R.id.webview_container);
+        container.addView(webView, new ViewGroup.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        webView.setWebViewClient(new CachingWebViewClient(FallbackContentCache.getInstance(this)));
         WebSettings webSettings = webView.getSettings();
         webSettings.setJavaScriptEnabled(true);
         setTitle(url);
@@ -43,6 +53,13 @@ public class WebviewActivity extends AppCompatActivity {
         webView.loadUrl(url);
     }
 
+    @Override
+    protected void onDestroy() {
+        WebViewPool.getInstance(this).release(mWebView);
+        mWebView = null;
+        super.onDestroy();
+    }
+
     @Override
     public boolean onOptionsItemSelected(MenuItem item) {
         switch (item.getItemId()) {
@@ -53,4 +70,18 @@ public class WebviewActivity extends AppCompatActivity {
         }
         return super.onOptionsItemSelected(item);
     }
+
+    private static class CachingWebViewClient extends WebViewClient {
+        private final FallbackContentCache mCache;
+
+        CachingWebViewClient(FallbackContentCache cache) {
+            mCache = cache;
+        }
+
+        @Override
+        public WebResourceResponse shouldInterceptRequest(WebView view,
+                WebResourceRequest request) {
+            return mCache.intercept(request);
+        }
+    }
 }
@@ -23,6 +23,8 @@ import android.net.Uri;
 public class WebviewFallback implements CustomTabActivityHelper.CustomTabFallback {
     @Override
     public void openUri(Activity activity, Uri uri) {
+        // Downloads the page while the activity and its WebView start.
+        FallbackContentCache.getInstance(activity).prefetch(uri);
         Intent intent = new Intent(activity, WebviewActivity.class);
         intent.putExtra(WebviewActivity.EXTRA_URL, uri.toString());
         activity.startActivity(intent);
@@ -0,0 +1,131 @@
+package org.chromium.customtabsdemos;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link EngagementEventStore}.
+ */
+public class EngagementEventStoreTest {
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mDirectory = Files.createTempDirectory("events").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void appendedRecords_areReadBackInOrder() throws IOException {
+        try (EngagementEventStore store = openStore(8, 4, 2)) {
+            store.append(1000, 7, 1, 42);
+            store.append(2000, 7, 2, -1);
+        }
+
+        List<File> segments;
+        try (EngagementEventStore store = openStore(8, 4, 2)) {
+            segments = store.getSegments();
+        }
+        assertEquals(1, segments.size());
+        try (EngagementEventStore.Cursor cursor = open(segments.get(0))) {
+            assertEquals(2, cursor.getCount());
+            assertTrue(cursor.next());
+            assertEquals(1000, cursor.getTimestampMs());
+            assertEquals(7, cursor.getSessionId());
+            assertEquals(1, cursor.getType());
+            assertEquals(42, cursor.getValue());
+            assertTrue(cursor.next());
+            assertEquals(2000, cursor.getTimestampMs());
+            assertEquals(-1, cursor.getValue());
+            assertFalse(cursor.next());
+        }
+    }
+
+    @Test
+    public void reopenedStore_appendsToNewestSegment() throws IOException {
+        try (EngagementEventStore store = openStore(8, 4, 2)) {
+            store.append(1, 1, 1, 1);
+        }
+        try (EngagementEventStore store = openStore(8, 4, 2)) {
+            store.append(2, 1, 1, 2);
+            assertEquals(1, store.getSegments().size());
+            try (EngagementEventStore.Cursor cursor = open(store.getSegments().get(0))) {
+                assertEquals(2, cursor.getCount());
+            }
+        }
+    }
+
+    @Test
+    public void fullSegments_rotateAndOldestAreDeleted() throws IOException {
+        try (EngagementEventStore store = openStore(2, 3, 1)) {
+            for (int i = 0; i < 9; i++) {
+                store.append(i, 1, 1, i);
+            }
+            List<File> segments = store.getSegments();
+            assertEquals(3, segments.size());
+            // Records 4..8 remain: two full segments and one with a single record.
+            try (EngagementEventStore.Cursor cursor = open(segments.get(0))) {
+                assertTrue(cursor.next());
+                assertEquals(4, cursor.getValue());
+            }
+            try (EngagementEventStore.Cursor cursor = open(segments.get(2))) {
+                assertEquals(1, cursor.getCount());
+            }
+        }
+    }
+
+    @Test
+    public void rotation_withoutPreallocatedSegment_opensNextSegmentInline() throws IOException {
+        List<Runnable> pending = new ArrayList<>();
+        try (EngagementEventStore store = openStore(2, 1, 1, pending::add)) {
+            for (int i = 0; i < 3; i++) {
+                store.append(i, 1, 1, i);
+            }
+            // Pruning is left to the flush executor, which has not run yet.
+            assertEquals(2, store.getSegments().size());
+            for (Runnable task : new ArrayList<>(pending)) task.run();
+            List<File> segments = store.getSegments();
+            assertEquals(1, segments.size());
+            try (EngagementEventStore.Cursor cursor = open(segments.get(0))) {
+                assertTrue(cursor.next());
+                assertEquals(2, cursor.getValue());
+            }
+        }
+    }
+
+    /**
+     * Opens a store on the test directory that flushes on the calling thread.
+     */
+    private EngagementEventStore openStore(int recordsPerSegment, int maxSegments,
+            int flushEvery) throws IOException {
+        return openStore(recordsPerSegment, maxSegments, flushEvery, Runnable::run);
+    }
+
+    private EngagementEventStore openStore(int recordsPerSegment, int maxSegments,
+            int flushEvery, Executor flushExecutor) throws IOException {
+        return new EngagementEventStore(mDirectory, recordsPerSegment, maxSegments, flushEvery,
+                flushExecutor);
+    }
+
+    private static EngagementEventStore.Cursor open(File segment) throws IOException {
+        return EngagementEventStore.Cursor.open(segment);
+    }
+}
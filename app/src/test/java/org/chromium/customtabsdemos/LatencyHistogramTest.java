@@ -0,0 +1,55 @@
+package org.chromium.customtabsdemos;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link LatencyHistogram}.
+ */
+public class LatencyHistogramTest {
+    @Test
+    public void emptyHistogram_reportsZero() {
+        LatencyHistogram.Snapshot snapshot = new LatencyHistogram().snapshot();
+        assertEquals(0, snapshot.getCount());
+        assertEquals(0, snapshot.getP50());
+        assertEquals(0, snapshot.getP99());
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        histogram.record(3);
+        histogram.record(5);
+        histogram.record(7);
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(3, snapshot.getCount());
+        assertEquals(5, snapshot.getP50());
+        assertEquals(7, snapshot.getP99());
+        assertEquals(5.0, snapshot.getMean(), 0.001);
+    }
+
+    @Test
+    public void bucketBounds_matchIndices() {
+        for (long value : new long[] {0, 1, 7, 8, 9, 15, 16, 100, 12345, Long.MAX_VALUE}) {
+            int index = LatencyHistogram.bucketIndex(value);
+            assertTrue(LatencyHistogram.bucketLowerBound(index) <= value);
+            if (value < Long.MAX_VALUE / 2) {
+                assertTrue(LatencyHistogram.bucketLowerBound(index + 1) > value);
+            }
+        }
+    }
+
+    @Test
+    public void percentiles_areWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 1000; i++) {
+            histogram.record(i);
+        }
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(500, snapshot.getP50(), 500 * 0.07);
+        assertEquals(900, snapshot.getP90(), 900 * 0.07);
+        assertEquals(990, snapshot.getP99(), 990 * 0.07);
+        assertEquals(1000, snapshot.getMax());
+    }
+}
@@ -0,0 +1,64 @@
+package org.chromium.customtabsdemos;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link MayLaunchUrlThrottler}.
+ */
+public class MayLaunchUrlThrottlerTest {
+    private final MayLaunchUrlThrottler mThrottler =
+            new MayLaunchUrlThrottler(1000, 2, 2, 500, 100, 400);
+
+    @Test
+    public void repeatedUrl_isDroppedWithinWindow() {
+        assertTrue(mThrottler.tryAcquire("https://example.com/a", 0));
+        assertFalse(mThrottler.tryAcquire("HTTPS://EXAMPLE.com/a#top", 10));
+        assertTrue(mThrottler.tryAcquire("https://example.com/a", 1000));
+    }
+
+    @Test
+    public void tokenBucket_limitsBurstsAndRefills() {
+        assertTrue(mThrottler.tryAcquire("https://example.com/1", 0));
+        assertTrue(mThrottler.tryAcquire("https://example.com/2", 0));
+        assertFalse(mThrottler.tryAcquire("https://example.com/3", 0));
+        assertTrue(mThrottler.tryAcquire("https://example.com/3", 500));
+    }
+
+    @Test
+    public void recentHints_evictLeastRecentlyUsed() {
+        // Two recent hints, and enough tokens that only the repeat check can drop a hint.
+        MayLaunchUrlThrottler throttler = new MayLaunchUrlThrottler(1000, 2, 8, 500, 100, 400);
+        assertTrue(throttler.tryAcquire("https://example.com/1", 0));
+        assertTrue(throttler.tryAcquire("https://example.com/2", 10));
+        assertTrue(throttler.tryAcquire("https://example.com/3", 20));
+        // Still recent, so dropped as a repeat.
+        assertFalse(throttler.tryAcquire("https://example.com/3", 30));
+        // Within the window, but evicted by the third hint, so it is no longer a repeat.
+        assertTrue(throttler.tryAcquire("https://example.com/1", 40));
+    }
+
+    @Test
+    public void refusedHint_backsOffExponentially() {
+        // Refills quickly enough that only the back-off limits the hints.
+        MayLaunchUrlThrottler throttler = new MayLaunchUrlThrottler(1000, 2, 2, 1, 100, 400);
+        assertTrue(throttler.tryAcquire("https://example.com/1", 0));
+        throttler.onResult(false, 0);
+        assertFalse(throttler.tryAcquire("https://example.com/2", 50));
+        assertTrue(throttler.tryAcquire("https://example.com/2", 100));
+        throttler.onResult(false, 100);
+        assertFalse(throttler.tryAcquire("https://example.com/3", 250));
+        assertTrue(throttler.tryAcquire("https://example.com/3", 300));
+        throttler.onResult(true, 300);
+        assertTrue(throttler.tryAcquire("https://example.com/4", 1300));
+    }
+
+    @Test
+    public void normalize_ignoresCaseOfHostAndFragment() {
+        assertEquals("https://example.com",
+                MayLaunchUrlThrottler.normalize(" HTTPS://Example.COM/#x "));
+        assertEquals("https://example.com/Path?q=A",
+                MayLaunchUrlThrottler.normalize("https://EXAMPLE.com/Path?q=A"));
+    }
+}
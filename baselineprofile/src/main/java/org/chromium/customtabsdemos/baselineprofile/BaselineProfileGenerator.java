@@ -0,0 +1,132 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.baselineprofile;
+
+import android.os.Build;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.junit4.BaselineProfileRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+
+import kotlin.Unit;
+
+/**
+ * Generates the profiles of the app from its critical journeys.
+ *
+ * <p>Startup covers DemoListActivity up to its first frame and also goes into the startup
+ * profile, which lays those classes out first in the dex. The launch journey opens each demo
+ * screen and launches a tab from it, which covers CustomTabActivityHelper, the connection and the
+ * androidx.browser code they call. Tabs are opened in the fake provider when it is installed.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileGenerator {
+    private static final String PACKAGE_NAME = "org.chromium.customtabsdemos";
+    private static final String FAKE_PROVIDER_PACKAGE_NAME =
+            "org.chromium.customtabsdemos.fakeprovider";
+    private static final long TIMEOUT_MS = 5000;
+    private static final String BROWSER_ROLE = "android.app.role.BROWSER";
+    private static final String[] DEMO_TITLES = {
+            "Simple Chrome Custom Tab",
+            "Partial Custom Tab",
+            "Service Connection Activity",
+            "Engagement Signals Demo",
+            "Customized UI Chrome Custom Tab",
+    };
+
+    @Rule
+    public BaselineProfileRule mBaselineProfileRule = new BaselineProfileRule();
+
+    // The default browser replaced by the fake provider, "" if there was none, or null if the
+    // role was left alone.
+    private String mPreviousBrowser;
+
+    @Before
+    public void setUp() throws IOException {
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q
+                && !device.executeShellCommand("pm path " + FAKE_PROVIDER_PACKAGE_NAME).isEmpty()) {
+            // The holders are separated by semicolons; the browser role has at most one.
+            mPreviousBrowser = device.executeShellCommand(
+                    "cmd role get-role-holders " + BROWSER_ROLE).split(";")[0].trim();
+            device.executeShellCommand(
+                    "cmd role add-role-holder " + BROWSER_ROLE + " " + FAKE_PROVIDER_PACKAGE_NAME);
+        }
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (mPreviousBrowser == null || mPreviousBrowser.equals(FAKE_PROVIDER_PACKAGE_NAME)) return;
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        if (mPreviousBrowser.isEmpty()) {
+            device.executeShellCommand("cmd role remove-role-holder " + BROWSER_ROLE + " "
+                    + FAKE_PROVIDER_PACKAGE_NAME);
+        } else {
+            device.executeShellCommand(
+                    "cmd role add-role-holder " + BROWSER_ROLE + " " + mPreviousBrowser);
+        }
+    }
+
+    @Test
+    public void startup() {
+        mBaselineProfileRule.collect(PACKAGE_NAME, 15, 3, "startup", true, false,
+                name -> true,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    @Test
+    public void launchFromEachDemo() {
+        mBaselineProfileRule.collect(PACKAGE_NAME, 15, 3, "launch", false, false,
+                name -> true,
+                scope -> {
+                    scope.pressHome();
+                    scope.startActivityAndWait();
+                    for (String title : DEMO_TITLES) {
+                        openDemoAndLaunchTab(scope, title);
+                    }
+                    return Unit.INSTANCE;
+                });
+    }
+
+    private static void openDemoAndLaunchTab(MacrobenchmarkScope scope, String title) {
+        UiDevice device = scope.getDevice();
+        UiObject2 item = device.wait(Until.findObject(By.text(title)), TIMEOUT_MS);
+        item.click();
+        UiObject2 button = device.wait(
+                Until.findObject(By.res(PACKAGE_NAME, "start_custom_tab")), TIMEOUT_MS);
+        button.click();
+        device.wait(Until.gone(By.res(PACKAGE_NAME, "start_custom_tab")), TIMEOUT_MS);
+        // Back to the demo screen, then to the list.
+        device.pressBack();
+        device.wait(Until.hasObject(By.res(PACKAGE_NAME, "start_custom_tab")), TIMEOUT_MS);
+        device.pressBack();
+        device.wait(Until.hasObject(By.text(title)), TIMEOUT_MS);
+    }
+}
@@ -0,0 +1,107 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the intent assembly of the partial and customized UI demos, against writers that only
+ * consume their input. Both are expected not to allocate.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class IntentAssemblyBenchmark {
+    private static final int ALL_FLAGS = (CustomUiOptions.FLAG_HIDE_URL_BAR_ON_SCROLL << 1) - 1;
+
+    private final CustomUiOptions mOptions =
+            new CustomUiOptions(ALL_FLAGS, 0xff3f51b5, 0xff303f9f);
+    private PartialTabExtras.Writer mWriter;
+    private CustomUiOptions.Target mTarget;
+
+    @Setup
+    public void setUp(Blackhole blackhole) {
+        mWriter = (key, value) -> blackhole.consume(value);
+        mTarget = new BlackholeTarget(blackhole);
+    }
+
+    @Benchmark
+    public void partialTabExtras() {
+        PartialTabExtras.write(mWriter, PartialTabExtras.ACTIVITY_HEIGHT_ADJUSTABLE, 600, 16, 42,
+                false);
+    }
+
+    @Benchmark
+    public void customUiOptions() {
+        mOptions.applyTo(mTarget);
+    }
+
+    private static final class BlackholeTarget implements CustomUiOptions.Target {
+        private final Blackhole mBlackhole;
+
+        BlackholeTarget(Blackhole blackhole) {
+            mBlackhole = blackhole;
+        }
+
+        @Override
+        public void setToolbarColors(int toolbarColor, int secondaryToolbarColor) {
+            mBlackhole.consume(toolbarColor);
+            mBlackhole.consume(secondaryToolbarColor);
+        }
+
+        @Override
+        public void addActionButton() {
+            mBlackhole.consume(1);
+        }
+
+        @Override
+        public void addMenuItem() {
+            mBlackhole.consume(2);
+        }
+
+        @Override
+        public void setDefaultShareEnabled(boolean enabled) {
+            mBlackhole.consume(enabled);
+        }
+
+        @Override
+        public void addToolbarItem() {
+            mBlackhole.consume(3);
+        }
+
+        @Override
+        public void setCustomCloseButton() {
+            mBlackhole.consume(4);
+        }
+
+        @Override
+        public void setShowTitle(boolean showTitle) {
+            mBlackhole.consume(showTitle);
+        }
+
+        @Override
+        public void setUrlBarHidingEnabled(boolean enabled) {
+            mBlackhole.consume(enabled);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures {@link ProviderSelector#select(PackageQueries)} over synthetic sets of browsers, where
+ * every other browser supports Custom Tabs and a few apps are specialized handlers.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProviderSelectorBenchmark {
+    @Param({"4", "64", "1024"})
+    public int mBrowserCount;
+
+    private PackageQueries mQueries;
+    private PackageQueries mSpecializedQueries;
+
+    @Setup
+    public void setUp() {
+        mQueries = createQueries(false);
+        mSpecializedQueries = createQueries(true);
+    }
+
+    private PackageQueries createQueries(boolean withSpecializedHandler) {
+        List<Handler> handlers = new ArrayList<>(mBrowserCount);
+        Set<String> services = new HashSet<>();
+        for (int i = 0; i < mBrowserCount; i++) {
+            String packageName = "com.example.browser" + i;
+            handlers.add(new Handler(packageName,
+                    withSpecializedHandler && i == mBrowserCount - 1));
+            if (i % 2 == 1) services.add(packageName);
+        }
+        // The default browser is the last candidate, the worst case for the lookup.
+        String defaultViewHandler = "com.example.browser" + (mBrowserCount - 1);
+        return new PackageQueries() {
+            @Override
+            public String getDefaultViewHandler() {
+                return defaultViewHandler;
+            }
+
+            @Override
+            public List<Handler> getViewHandlers() {
+                return handlers;
+            }
+
+            @Override
+            public boolean hasCustomTabsService(String packageName) {
+                return services.contains(packageName);
+            }
+        };
+    }
+
+    @Benchmark
+    public ProviderSelector.Selection selectDefault() {
+        return ProviderSelector.select(mQueries);
+    }
+
+    @Benchmark
+    public ProviderSelector.Selection selectWithSpecializedHandler() {
+        return ProviderSelector.select(mSpecializedQueries);
+    }
+
+    private static final class Handler implements PackageQueries.ViewHandler {
+        private final String mPackageName;
+        private final boolean mSpecialized;
+
+        Handler(String packageName, boolean specialized) {
+            mPackageName = packageName;
+            mSpecialized = specialized;
+        }
+
+        @Override
+        public String getPackageName() {
+            return mPackageName;
+        }
+
+        @Override
+        public boolean isSpecialized() {
+            return mSpecialized;
+        }
+    }
+}
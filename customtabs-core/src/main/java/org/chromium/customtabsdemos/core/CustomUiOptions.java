@@ -0,0 +1,107 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+/**
+ * The choices of the customized UI demo, and how they map onto a Custom Tabs intent.
+ */
+public final class CustomUiOptions {
+    public static final int FLAG_ACTION_BUTTON = 1;
+    public static final int FLAG_MENU_ITEM = 1 << 1;
+    public static final int FLAG_DEFAULT_SHARE = 1 << 2;
+    public static final int FLAG_TOOLBAR_ITEM = 1 << 3;
+    public static final int FLAG_CUSTOM_CLOSE_BUTTON = 1 << 4;
+    public static final int FLAG_SHOW_TITLE = 1 << 5;
+    public static final int FLAG_HIDE_URL_BAR_ON_SCROLL = 1 << 6;
+
+    /**
+     * Receives the options, typically backed by a CustomTabsIntent.Builder.
+     */
+    public interface Target {
+        void setToolbarColors(int toolbarColor, int secondaryToolbarColor);
+
+        void addActionButton();
+
+        void addMenuItem();
+
+        void setDefaultShareEnabled(boolean enabled);
+
+        void addToolbarItem();
+
+        void setCustomCloseButton();
+
+        void setShowTitle(boolean showTitle);
+
+        void setUrlBarHidingEnabled(boolean enabled);
+    }
+
+    private final int mFlags;
+    private final int mToolbarColor;
+    private final int mSecondaryToolbarColor;
+
+    /**
+     * @param flags a combination of the FLAG_ constants.
+     * @param toolbarColor ARGB color of the toolbar.
+     * @param secondaryToolbarColor ARGB color of the bottom toolbar.
+     */
+    public CustomUiOptions(int flags, int toolbarColor, int secondaryToolbarColor) {
+        mFlags = flags;
+        mToolbarColor = toolbarColor;
+        mSecondaryToolbarColor = secondaryToolbarColor;
+    }
+
+    public int getFlags() {
+        return mFlags;
+    }
+
+    public boolean hasFlag(int flag) {
+        return (mFlags & flag) != 0;
+    }
+
+    public int getToolbarColor() {
+        return mToolbarColor;
+    }
+
+    public int getSecondaryToolbarColor() {
+        return mSecondaryToolbarColor;
+    }
+
+    /**
+     * Applies every option, in the order the builder expects them.
+     */
+    public void applyTo(Target target) {
+        target.setToolbarColors(mToolbarColor, mSecondaryToolbarColor);
+        if (hasFlag(FLAG_ACTION_BUTTON)) target.addActionButton();
+        if (hasFlag(FLAG_MENU_ITEM)) target.addMenuItem();
+        target.setDefaultShareEnabled(hasFlag(FLAG_DEFAULT_SHARE));
+        if (hasFlag(FLAG_TOOLBAR_ITEM)) target.addToolbarItem();
+        if (hasFlag(FLAG_CUSTOM_CLOSE_BUTTON)) target.setCustomCloseButton();
+        target.setShowTitle(hasFlag(FLAG_SHOW_TITLE));
+        target.setUrlBarHidingEnabled(hasFlag(FLAG_HIDE_URL_BAR_ON_SCROLL));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof CustomUiOptions)) return false;
+        CustomUiOptions other = (CustomUiOptions) o;
+        return mFlags == other.mFlags && mToolbarColor == other.mToolbarColor
+                && mSecondaryToolbarColor == other.mSecondaryToolbarColor;
+    }
+
+    @Override
+    public int hashCode() {
+        return (mFlags * 31 + mToolbarColor) * 31 + mSecondaryToolbarColor;
+    }
+}
@@ -0,0 +1,542 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * A size-bounded on-disk cache of HTTP GET responses, for the WebView fallback.
+ *
+ * <p>Each response is stored as a body file and a small binary metadata file, named after a hash
+ * of the URL. {@link #fetch(String, long)} returns a fresh entry as is, revalidates a stale one
+ * with If-None-Match and If-Modified-Since, and downloads a missing one. Bodies are streamed from
+ * the connection into the file without being held in memory, and served with
+ * {@link Entry#openStream()} straight from the file, with the response headers kept in the
+ * metadata. Once the bodies exceed the size bound, the least recently used entries are deleted.
+ *
+ * <p>Only 200 responses to the URL itself are stored: redirects are not followed, and responses
+ * that are private, set cookies or Vary are refused, since they may not be served to another
+ * request as is. Entries are keyed on the URL alone, so the response to a request that carries a
+ * Cookie or Authorization header is only stored if it is explicitly public.
+ *
+ * <p>Replaced or evicted files are unlinked, so streams already open on them stay readable.
+ *
+ * <p>This is threadsafe. Concurrent fetches of the same URL are serialized, so the second one
+ * finds the entry the first one stored.
+ */
+public final class HttpDiskCache {
+    public static final int CONNECT_TIMEOUT_MS = 10000;
+    public static final int READ_TIMEOUT_MS = 15000;
+
+    private static final int MAGIC = 0x48444332;
+    private static final String BODY_SUFFIX = ".body";
+    private static final String META_SUFFIX = ".meta";
+    private static final String TMP_SUFFIX = ".tmp";
+    private static final int FETCH_LOCKS = 16;
+    private static final long TRANSFER_CHUNK = 64 * 1024;
+    // Lower case. Describe the connection rather than the body, so they are not stored.
+    private static final Set<String> UNSTORED_HEADERS = new HashSet<>(Arrays.asList(
+            "connection", "keep-alive", "transfer-encoding", "content-length",
+            "content-encoding", "set-cookie"));
+
+    private final File mDirectory;
+    private final long mMaxBytes;
+    private final LongSupplier mClock;
+    private final Object[] mFetchLocks = new Object[FETCH_LOCKS];
+
+    // Guarded by this, least recently used first.
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+    private long mBytes;
+    private int mHits;
+    private int mRevalidations;
+    private int mDownloads;
+
+    public HttpDiskCache(File directory, long maxBytes) throws IOException {
+        this(directory, maxBytes, System::currentTimeMillis);
+    }
+
+    /**
+     * Opens the cache and indexes the entries already in the directory.
+     *
+     * @param clock the wall clock, in ms, used for the age of entries.
+     */
+    public HttpDiskCache(File directory, long maxBytes, LongSupplier clock) throws IOException {
+        mDirectory = directory;
+        mMaxBytes = maxBytes;
+        mClock = clock;
+        for (int i = 0; i < FETCH_LOCKS; i++) mFetchLocks[i] = new Object();
+
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        loadIndex();
+    }
+
+    /**
+     * @return The entry of the URL, whatever its age, or null if it is not cached.
+     */
+    public synchronized Entry get(String url) {
+        Entry entry = mEntries.get(url);
+        if (entry != null) mHits++;
+        return entry;
+    }
+
+    public synchronized boolean contains(String url) {
+        return mEntries.containsKey(url);
+    }
+
+    /**
+     * @return The entry of the URL if it is younger than maxAgeMs, otherwise null. Never goes to
+     *         the network.
+     */
+    public synchronized Entry getFresh(String url, long maxAgeMs) {
+        Entry entry = mEntries.get(url);
+        if (entry == null || mClock.getAsLong() - entry.mFetchedAtMs >= maxAgeMs) return null;
+        mHits++;
+        return entry;
+    }
+
+    /**
+     * Returns the entry of the URL, going to the network if it is missing or older than maxAgeMs.
+     * Blocks, so must not be called on the main thread.
+     *
+     * @throws IOException if the request fails, the response is not cacheable or is larger than
+     *         the cache.
+     */
+    public Entry fetch(String url, long maxAgeMs) throws IOException {
+        return fetch(url, maxAgeMs, Collections.emptyMap());
+    }
+
+    /**
+     * Like {@link #fetch(String, long)}, sending requestHeaders, e.g. the Cookie, with a request.
+     */
+    public Entry fetch(String url, long maxAgeMs, Map<String, String> requestHeaders)
+            throws IOException {
+        synchronized (mFetchLocks[(url.hashCode() & 0x7fffffff) % FETCH_LOCKS]) {
+            Entry cached;
+            synchronized (this) {
+                cached = mEntries.get(url);
+                if (cached != null && mClock.getAsLong() - cached.mFetchedAtMs < maxAgeMs) {
+                    mHits++;
+                    return cached;
+                }
+            }
+            return load(url, cached, requestHeaders);
+        }
+    }
+
+    private Entry load(String url, Entry cached, Map<String, String> requestHeaders)
+            throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        try {
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // A redirect is answered for another URL, so it is never stored under this one.
+            connection.setInstanceFollowRedirects(false);
+            for (Map.Entry<String, String> header : requestHeaders.entrySet()) {
+                connection.setRequestProperty(header.getKey(), header.getValue());
+            }
+            if (cached != null) {
+                if (cached.mETag != null) {
+                    connection.setRequestProperty("If-None-Match", cached.mETag);
+                }
+                if (cached.mLastModified != null) {
+                    connection.setRequestProperty("If-Modified-Since", cached.mLastModified);
+                }
+            }
+            int code = connection.getResponseCode();
+            if (code == HttpURLConnection.HTTP_NOT_MODIFIED && cached != null) {
+                Entry entry = cached.withFetchedAt(mClock.getAsLong());
+                writeMeta(entry);
+                synchronized (this) {
+                    mRevalidations++;
+                    if (mEntries.containsKey(url)) mEntries.put(url, entry);
+                }
+                return entry;
+            }
+            if (code != HttpURLConnection.HTTP_OK
+                    || !url.equals(connection.getURL().toString())) {
+                throw new IOException("HTTP " + code + " for " + url);
+            }
+            String reason = getUncacheableReason(connection, isCredentialed(requestHeaders));
+            if (reason != null) {
+                throw new IOException("Not cacheable (" + reason + "): " + url);
+            }
+            return store(url, connection);
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    private Entry store(String url, HttpURLConnection connection) throws IOException {
+        String key = key(url);
+        File tmp = new File(mDirectory, key + BODY_SUFFIX + TMP_SUFFIX);
+        long length;
+        try (InputStream in = connection.getInputStream();
+                ReadableByteChannel source = Channels.newChannel(in);
+                FileOutputStream out = new FileOutputStream(tmp)) {
+            FileChannel target = out.getChannel();
+            length = 0;
+            long transferred;
+            while ((transferred = target.transferFrom(source, length, TRANSFER_CHUNK)) > 0) {
+                length += transferred;
+                if (length > mMaxBytes) break;
+            }
+        } catch (IOException e) {
+            tmp.delete();
+            throw e;
+        }
+        if (length > mMaxBytes) {
+            tmp.delete();
+            throw new IOException("Larger than the cache: " + url);
+        }
+
+        String[] contentType = parseContentType(connection.getContentType());
+        Entry entry = new Entry(url, new File(mDirectory, key + BODY_SUFFIX), contentType[0],
+                contentType[1], connection.getHeaderField("ETag"),
+                connection.getHeaderField("Last-Modified"), mClock.getAsLong(), length,
+                connection.getResponseMessage(), getStoredHeaders(connection));
+        synchronized (this) {
+            if (!tmp.renameTo(entry.mFile)) {
+                tmp.delete();
+                throw new IOException("Cannot store " + url);
+            }
+            writeMeta(entry);
+            Entry previous = mEntries.put(url, entry);
+            if (previous != null) mBytes -= previous.mLength;
+            mBytes += length;
+            mDownloads++;
+            trim();
+        }
+        return entry;
+    }
+
+    /**
+     * Deletes every entry.
+     */
+    public synchronized void clear() {
+        for (Entry entry : mEntries.values()) delete(entry);
+        mEntries.clear();
+        mBytes = 0;
+    }
+
+    /**
+     * @return The total size of the cached bodies, in bytes.
+     */
+    public synchronized long getSize() {
+        return mBytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return mEntries.size();
+    }
+
+    /** @return Lookups answered from the disk without a request. */
+    public synchronized int getHitCount() {
+        return mHits;
+    }
+
+    /** @return Entries confirmed by a 304 Not Modified. */
+    public synchronized int getRevalidationCount() {
+        return mRevalidations;
+    }
+
+    /** @return Bodies downloaded into the cache. */
+    public synchronized int getDownloadCount() {
+        return mDownloads;
+    }
+
+    /**
+     * @param credentialed whether the request carried a Cookie or Authorization header.
+     * @return Why the response may not be served to other requests, or null if it may be.
+     */
+    static String getUncacheableReason(HttpURLConnection connection, boolean credentialed) {
+        String cacheControl = connection.getHeaderField("Cache-Control");
+        String directives = cacheControl == null ? "" : cacheControl.toLowerCase(Locale.US);
+        if (directives.contains("no-store")) return "no-store";
+        if (directives.contains("private")) return "private";
+        // It may be tailored to the user, e.g. a logged in page without Cache-Control: private.
+        if (credentialed && !directives.contains("public")) return "credentialed";
+        if (connection.getHeaderField("Set-Cookie") != null) return "Set-Cookie";
+        if (connection.getHeaderField("Vary") != null) return "Vary";
+        return null;
+    }
+
+    private static boolean isCredentialed(Map<String, String> requestHeaders) {
+        for (String name : requestHeaders.keySet()) {
+            if ("cookie".equalsIgnoreCase(name) || "authorization".equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static Map<String, String> getStoredHeaders(HttpURLConnection connection) {
+        Map<String, String> headers = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> field : connection.getHeaderFields().entrySet()) {
+            // The status line has no name.
+            String name = field.getKey();
+            if (name == null || UNSTORED_HEADERS.contains(name.toLowerCase(Locale.US))) continue;
+            headers.put(name, String.join(", ", field.getValue()));
+        }
+        return headers;
+    }
+
+    private void trim() {
+        Iterator<Entry> iterator = mEntries.values().iterator();
+        while (mBytes > mMaxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            mBytes -= entry.mLength;
+            delete(entry);
+        }
+    }
+
+    private void delete(Entry entry) {
+        entry.mFile.delete();
+        metaFile(entry.mFile).delete();
+    }
+
+    private void loadIndex() {
+        File[] metas = mDirectory.listFiles((dir, name) -> name.endsWith(META_SUFFIX));
+        if (metas == null) return;
+        // The metadata is rewritten on every fetch, so its age orders the entries by use.
+        Arrays.sort(metas, (a, b) -> Long.compare(a.lastModified(), b.lastModified()));
+        for (File meta : metas) {
+            Entry entry = readMeta(meta);
+            if (entry == null || !entry.mFile.isFile() || entry.mFile.length() != entry.mLength) {
+                meta.delete();
+                bodyFile(meta).delete();
+                continue;
+            }
+            mEntries.put(entry.mUrl, entry);
+            mBytes += entry.mLength;
+        }
+        trim();
+    }
+
+    private Entry readMeta(File meta) {
+        File body = bodyFile(meta);
+        try (DataInputStream in = new DataInputStream(new FileInputStream(meta))) {
+            if (in.readInt() != MAGIC) return null;
+            String url = in.readUTF();
+            String mimeType = readNullable(in);
+            String charset = readNullable(in);
+            String eTag = readNullable(in);
+            String lastModified = readNullable(in);
+            long fetchedAtMs = in.readLong();
+            long length = in.readLong();
+            String reasonPhrase = readNullable(in);
+            int headerCount = in.readInt();
+            Map<String, String> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                headers.put(in.readUTF(), in.readUTF());
+            }
+            return new Entry(url, body, mimeType, charset, eTag, lastModified, fetchedAtMs,
+                    length, reasonPhrase, headers);
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        File meta = metaFile(entry.mFile);
+        File tmp = new File(meta.getPath() + TMP_SUFFIX);
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(tmp))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(entry.mUrl);
+            writeNullable(out, entry.mMimeType);
+            writeNullable(out, entry.mCharset);
+            writeNullable(out, entry.mETag);
+            writeNullable(out, entry.mLastModified);
+            out.writeLong(entry.mFetchedAtMs);
+            out.writeLong(entry.mLength);
+            writeNullable(out, entry.mReasonPhrase);
+            out.writeInt(entry.mHeaders.size());
+            for (Map.Entry<String, String> header : entry.mHeaders.entrySet()) {
+                out.writeUTF(header.getKey());
+                out.writeUTF(header.getValue());
+            }
+        }
+        if (!tmp.renameTo(meta)) {
+            tmp.delete();
+            throw new IOException("Cannot write " + meta);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private File bodyFile(File meta) {
+        String name = meta.getName();
+        return new File(mDirectory,
+                name.substring(0, name.length() - META_SUFFIX.length()) + BODY_SUFFIX);
+    }
+
+    private static File metaFile(File body) {
+        String path = body.getPath();
+        return new File(path.substring(0, path.length() - BODY_SUFFIX.length()) + META_SUFFIX);
+    }
+
+    /**
+     * Splits "text/html; charset=utf-8" into the MIME type and the charset, either may be null.
+     */
+    static String[] parseContentType(String contentType) {
+        String[] result = new String[2];
+        if (contentType == null) return result;
+        String[] parts = contentType.split(";");
+        String mimeType = parts[0].trim();
+        result[0] = mimeType.isEmpty() ? null : mimeType.toLowerCase(Locale.US);
+        for (int i = 1; i < parts.length; i++) {
+            String part = parts[i].trim();
+            if (part.toLowerCase(Locale.US).startsWith("charset=")) {
+                result[1] = part.substring("charset=".length()).replace("\"", "").trim();
+            }
+        }
+        return result;
+    }
+
+    static String key(String url) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256")
+                    .digest(url.getBytes(StandardCharsets.UTF_8));
+            StringBuilder builder = new StringBuilder(32);
+            for (int i = 0; i < 16; i++) {
+                builder.append(String.format(Locale.US, "%02x", digest[i]));
+            }
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new AssertionError(e);
+        }
+    }
+
+    /**
+     * A cached response. Immutable; a revalidation or a new download makes a new one.
+     */
+    public static final class Entry {
+        final String mUrl;
+        final File mFile;
+        final String mMimeType;
+        final String mCharset;
+        final String mETag;
+        final String mLastModified;
+        final long mFetchedAtMs;
+        final long mLength;
+        final String mReasonPhrase;
+        final Map<String, String> mHeaders;
+
+        Entry(String url, File file, String mimeType, String charset, String eTag,
+                String lastModified, long fetchedAtMs, long length, String reasonPhrase,
+                Map<String, String> headers) {
+            mUrl = url;
+            mFile = file;
+            mMimeType = mimeType;
+            mCharset = charset;
+            mETag = eTag;
+            mLastModified = lastModified;
+            mFetchedAtMs = fetchedAtMs;
+            mLength = length;
+            mReasonPhrase = reasonPhrase;
+            mHeaders = Collections.unmodifiableMap(new LinkedHashMap<>(headers));
+        }
+
+        Entry withFetchedAt(long fetchedAtMs) {
+            return new Entry(mUrl, mFile, mMimeType, mCharset, mETag, mLastModified, fetchedAtMs,
+                    mLength, mReasonPhrase, mHeaders);
+        }
+
+        public String getUrl() {
+            return mUrl;
+        }
+
+        /** @return The MIME type, e.g. text/html, or null if the server sent none. */
+        public String getMimeType() {
+            return mMimeType;
+        }
+
+        /** @return The charset of the Content-Type, or null if there was none. */
+        public String getCharset() {
+            return mCharset;
+        }
+
+        public String getETag() {
+            return mETag;
+        }
+
+        public String getLastModified() {
+            return mLastModified;
+        }
+
+        public long getFetchedAtMs() {
+            return mFetchedAtMs;
+        }
+
+        /** @return The size of the body, in bytes. */
+        public long getLength() {
+            return mLength;
+        }
+
+        /** @return The reason phrase of the 200, e.g. OK, or null if there was none. */
+        public String getReasonPhrase() {
+            return mReasonPhrase;
+        }
+
+        /**
+         * @return The response headers, without those describing the connection or the transfer
+         *         encoding of the body. Repeated headers are joined with commas.
+         */
+        public Map<String, String> getHeaders() {
+            return mHeaders;
+        }
+
+        /**
+         * Opens the body file. The caller closes the stream.
+         *
+         * @throws IOException if the entry has been evicted before the stream was opened.
+         */
+        public InputStream openStream() throws IOException {
+            return new FileInputStream(mFile);
+        }
+    }
+}
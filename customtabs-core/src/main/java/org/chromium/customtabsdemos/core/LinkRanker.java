@@ -0,0 +1,176 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Ranks the links visible in a scrolling list by how likely the user is to open them next, and
+ * decides when a new hint is due.
+ *
+ * <p>An item scores by how long it has been on screen, up to {@link #MAX_DWELL_MS}, and by how
+ * close it is to the top of the viewport. Items that are mostly off screen are left out. Since the
+ * dwell keeps growing while the list rests, the ranking is recomputed every {@link #RERANK_MS}
+ * until every visible item has reached the maximum dwell, and a hint is only due when the order
+ * has changed since the last one.
+ *
+ * <p>Hints are held back while the list is flinging, and until it has not scrolled for
+ * {@link #DEBOUNCE_MS}.
+ *
+ * <p>This is not threadsafe; use it from one thread, e.g. the main thread. Times are in ms, from
+ * any monotonic clock.
+ */
+public final class LinkRanker {
+    public static final long DEBOUNCE_MS = 250;
+    public static final long RERANK_MS = 1000;
+    // Dwell time after which an item does not gain more score.
+    public static final long MAX_DWELL_MS = 3000;
+    private static final float DWELL_WEIGHT = 0.6f;
+    private static final float POSITION_WEIGHT = 0.4f;
+
+    /**
+     * An item on screen, in pixels relative to the top of the viewport.
+     */
+    public static final class Item {
+        final int mPosition;
+        final int mTop;
+        final int mBottom;
+
+        public Item(int position, int top, int bottom) {
+            mPosition = position;
+            mTop = top;
+            mBottom = bottom;
+        }
+    }
+
+    // When each visible position came on screen.
+    private final Map<Integer, Long> mVisibleSince = new HashMap<>();
+    private boolean mFlinging;
+    private long mLastScrollMs = Long.MIN_VALUE / 2;
+    private int[] mLastHint = new int[0];
+
+    /**
+     * Records which positions are on screen now. Those that stay visible keep their dwell.
+     */
+    public void setVisible(int[] positions, long nowMs) {
+        Map<Integer, Long> stillVisible = new HashMap<>(positions.length * 2);
+        for (int position : positions) {
+            Long since = mVisibleSince.get(position);
+            stillVisible.put(position, since == null ? nowMs : since);
+        }
+        mVisibleSince.clear();
+        mVisibleSince.putAll(stillVisible);
+    }
+
+    /**
+     * Records a scroll. A fling holds hints back until {@link #onScrollIdle(long)}.
+     */
+    public void onScrolled(boolean flinging, long nowMs) {
+        mFlinging = flinging;
+        mLastScrollMs = nowMs;
+    }
+
+    public void onScrollIdle(long nowMs) {
+        mFlinging = false;
+        mLastScrollMs = nowMs;
+    }
+
+    /**
+     * @return How long to wait before hinting, 0 if a hint may be sent now, or -1 while the list
+     *         is flinging.
+     */
+    public long getHintDelayMs(long nowMs) {
+        if (mFlinging) return -1;
+        return Math.max(0, mLastScrollMs + DEBOUNCE_MS - nowMs);
+    }
+
+    /**
+     * @return Whether the ranking may still change without a scroll, because a visible item has
+     *         not reached the maximum dwell yet.
+     */
+    public boolean needsRerank(long nowMs) {
+        for (long since : mVisibleSince.values()) {
+            if (nowMs - since < MAX_DWELL_MS) return true;
+        }
+        return false;
+    }
+
+    /**
+     * @param items the items that have a link.
+     * @param viewportHeight the height of the list, in pixels.
+     * @return The positions of the items, most likely first.
+     */
+    public int[] rank(List<Item> items, int viewportHeight, long nowMs) {
+        if (viewportHeight <= 0) return new int[0];
+        List<Scored> scored = new ArrayList<>(items.size());
+        for (Item item : items) {
+            int height = item.mBottom - item.mTop;
+            int visibleTop = Math.max(item.mTop, 0);
+            int visibleBottom = Math.min(item.mBottom, viewportHeight);
+            // Items that are mostly off screen are unlikely to be tapped.
+            if (height <= 0 || (visibleBottom - visibleTop) * 2 < height) continue;
+
+            Long since = mVisibleSince.get(item.mPosition);
+            long dwellMs = since == null ? 0 : nowMs - since;
+            float dwell = Math.min(dwellMs, MAX_DWELL_MS) / (float) MAX_DWELL_MS;
+            float closeness = 1f - visibleTop / (float) viewportHeight;
+            scored.add(new Scored(item.mPosition,
+                    DWELL_WEIGHT * dwell + POSITION_WEIGHT * closeness));
+        }
+        // Ties go to the item higher up the list.
+        Collections.sort(scored, (a, b) -> a.mScore != b.mScore
+                ? Float.compare(b.mScore, a.mScore) : Integer.compare(a.mPosition, b.mPosition));
+        int[] ranking = new int[scored.size()];
+        for (int i = 0; i < ranking.length; i++) ranking[i] = scored.get(i).mPosition;
+        return ranking;
+    }
+
+    /**
+     * Records the ranking as hinted.
+     *
+     * @param count how many of its first positions were sent.
+     * @return false if the same positions were hinted last time, in which case nothing is due.
+     */
+    public boolean markHinted(int[] ranking, int count) {
+        int[] hint = Arrays.copyOf(ranking, Math.min(count, ranking.length));
+        if (Arrays.equals(hint, mLastHint)) return false;
+        mLastHint = hint;
+        return true;
+    }
+
+    /**
+     * Forgets the visible items and the last hint, e.g. when the list is detached.
+     */
+    public void reset() {
+        mVisibleSince.clear();
+        mFlinging = false;
+        mLastScrollMs = Long.MIN_VALUE / 2;
+        mLastHint = new int[0];
+    }
+
+    private static final class Scored {
+        final int mPosition;
+        final float mScore;
+
+        Scored(int position, float score) {
+            mPosition = position;
+            mScore = score;
+        }
+    }
+}
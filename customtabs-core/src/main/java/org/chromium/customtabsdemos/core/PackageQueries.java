@@ -0,0 +1,48 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import java.util.List;
+
+/**
+ * The answers of the package manager needed to pick a Custom Tabs provider.
+ */
+public interface PackageQueries {
+    /**
+     * An app that handles VIEW intents for web URLs.
+     */
+    interface ViewHandler {
+        String getPackageName();
+
+        /**
+         * @return Whether it only handles some hosts and paths, e.g. a native app for a site.
+         */
+        boolean isSpecialized();
+    }
+
+    /**
+     * @return The package of the default VIEW handler, or null if there is none.
+     */
+    String getDefaultViewHandler();
+
+    /**
+     * @return Every VIEW handler, in the package manager's order of preference.
+     */
+    List<? extends ViewHandler> getViewHandlers();
+
+    /**
+     * @return Whether the package implements the Custom Tabs service.
+     */
+    boolean hasCustomTabsService(String packageName);
+}
@@ -0,0 +1,81 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+/**
+ * Writes the extras of a partial Custom Tab, i.e. one that only covers part of the screen.
+ *
+ * <p>Besides the androidx.browser extras, the pixel corner radius and the background interaction
+ * extras are written for browsers that only read those.
+ */
+public final class PartialTabExtras {
+    public static final int ACTIVITY_HEIGHT_DEFAULT = 0;
+    public static final int ACTIVITY_HEIGHT_ADJUSTABLE = 1;
+    public static final int ACTIVITY_HEIGHT_FIXED = 2;
+    public static final int TOOLBAR_CORNER_RADIUS_MAX_DP = 16;
+
+    public static final String EXTRA_INITIAL_ACTIVITY_HEIGHT_PX =
+            "androidx.browser.customtabs.extra.INITIAL_ACTIVITY_HEIGHT_PX";
+    public static final String EXTRA_ACTIVITY_HEIGHT_RESIZE_BEHAVIOR =
+            "androidx.browser.customtabs.extra.ACTIVITY_HEIGHT_RESIZE_BEHAVIOR";
+    public static final String EXTRA_TOOLBAR_CORNER_RADIUS_DP =
+            "androidx.browser.customtabs.extra.TOOLBAR_CORNER_RADIUS_DP";
+    public static final String EXTRA_INITIAL_ACTIVITY_HEIGHT_IN_PIXEL =
+            "androidx.browser.customtabs.extra.INITIAL_ACTIVITY_HEIGHT_IN_PIXEL";
+    public static final String EXTRA_TOOLBAR_CORNER_RADIUS_IN_PIXEL =
+            "androidx.browser.customtabs.extra.TOOLBAR_CORNER_RADIUS_IN_PIXEL";
+    public static final String EXTRA_ENABLE_BACKGROUND_INTERACTION =
+            "androix.browser.customtabs.extra.ENABLE_BACKGROUND_INTERACTION";
+    public static final int BACKGROUND_INTERACT_OFF_VALUE = 2;
+
+    /**
+     * Receives the extras, e.g. {@code intent::putExtra}.
+     */
+    public interface Writer {
+        void putInt(String key, int value);
+    }
+
+    private PartialTabExtras() {}
+
+    /**
+     * @param resizeBehavior one of the ACTIVITY_HEIGHT_ constants.
+     * @param initialHeightPx initial height of the tab, in pixels.
+     * @param toolbarCornerRadiusDp the toolbar's top corner radii in dp.
+     * @param toolbarCornerRadiusPx the toolbar's top corner radii in pixels.
+     * @param enableBackgroundInteract whether the app behind the tab stays interactive.
+     * @throws IllegalArgumentException if a value is out of range.
+     */
+    public static void write(Writer writer, int resizeBehavior, int initialHeightPx,
+            int toolbarCornerRadiusDp, int toolbarCornerRadiusPx,
+            boolean enableBackgroundInteract) {
+        if (initialHeightPx <= 0) {
+            throw new IllegalArgumentException("Invalid initial height " + initialHeightPx);
+        }
+        if (resizeBehavior < ACTIVITY_HEIGHT_DEFAULT || resizeBehavior > ACTIVITY_HEIGHT_FIXED) {
+            throw new IllegalArgumentException("Invalid resize behavior " + resizeBehavior);
+        }
+        if (toolbarCornerRadiusDp < 0 || toolbarCornerRadiusDp > TOOLBAR_CORNER_RADIUS_MAX_DP) {
+            throw new IllegalArgumentException("Invalid corner radius " + toolbarCornerRadiusDp);
+        }
+
+        writer.putInt(EXTRA_INITIAL_ACTIVITY_HEIGHT_PX, initialHeightPx);
+        writer.putInt(EXTRA_ACTIVITY_HEIGHT_RESIZE_BEHAVIOR, resizeBehavior);
+        writer.putInt(EXTRA_TOOLBAR_CORNER_RADIUS_DP, toolbarCornerRadiusDp);
+        writer.putInt(EXTRA_INITIAL_ACTIVITY_HEIGHT_IN_PIXEL, initialHeightPx);
+        writer.putInt(EXTRA_TOOLBAR_CORNER_RADIUS_IN_PIXEL, toolbarCornerRadiusPx);
+        if (!enableBackgroundInteract) {
+            writer.putInt(EXTRA_ENABLE_BACKGROUND_INTERACTION, BACKGROUND_INTERACT_OFF_VALUE);
+        }
+    }
+}
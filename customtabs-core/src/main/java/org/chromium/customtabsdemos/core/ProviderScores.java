@@ -0,0 +1,259 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Latency statistics of Custom Tabs providers, learned from real binds and launches.
+ *
+ * <p>For each provider, the bind time, the time the synchronous warmup call takes to return and
+ * the launch to TAB_SHOWN latency are kept as exponentially decayed means, so recent samples count
+ * most. The warmup call only measures the binder round trip into the provider, not how long the
+ * browser then takes to warm up. The score of a provider is a weighted sum of the metrics, in
+ * milliseconds; lower is faster.
+ *
+ * <p>As a {@link ProviderSelector.Ranking}, it considers the candidates whose bind has
+ * {@link #DEFAULT_MIN_SAMPLES} samples, since that can be measured with a short bind without
+ * warming the provider up or launching anything. The warmup call and TAB_SHOWN latencies only
+ * count if every one of them has enough samples of those too, so that candidates are always
+ * compared on the same metrics. It only moves
+ * away from the first candidate if that one is slower by more than the margin, so that noise does
+ * not flip the choice.
+ *
+ * <p>The statistics can be written to and read from a compact binary form.
+ *
+ * <p>This is threadsafe.
+ */
+public final class ProviderScores implements ProviderSelector.Ranking {
+    public static final int METRIC_BIND = 0;
+    public static final int METRIC_WARMUP = 1;
+    public static final int METRIC_TAB_SHOWN = 2;
+    static final int METRIC_COUNT = 3;
+    private static final String[] METRIC_NAMES = {"bind", "warmupCall", "shown"};
+    // The bind and warmup only delay launches made right after them, the TAB_SHOWN every one.
+    private static final double[] METRIC_WEIGHTS = {0.25, 0.25, 1.0};
+    private static final int ALL_METRICS = (1 << METRIC_COUNT) - 1;
+    // The metrics that can be sampled without warming the provider up or launching a tab.
+    private static final int PROBE_METRICS = 1 << METRIC_BIND;
+
+    public static final double DEFAULT_DECAY = 0.2;
+    public static final int DEFAULT_MIN_SAMPLES = 3;
+    public static final double DEFAULT_MARGIN = 0.1;
+
+    private static final int MAGIC = 0x43545343;
+    private static final int VERSION = 1;
+
+    private final double mDecay;
+    private final int mMinSamples;
+    private final double mMargin;
+    private final Map<String, double[]> mMeans = new HashMap<>();
+    private final Map<String, int[]> mSamples = new HashMap<>();
+
+    public ProviderScores() {
+        this(DEFAULT_DECAY, DEFAULT_MIN_SAMPLES, DEFAULT_MARGIN);
+    }
+
+    /**
+     * @param decay weight of a new sample in the mean, between 0 and 1.
+     * @param minSamples samples of every metric a provider needs before it can be picked.
+     * @param margin how much faster, as a fraction, a provider must be than the first candidate.
+     */
+    public ProviderScores(double decay, int minSamples, double margin) {
+        if (decay <= 0 || decay > 1) throw new IllegalArgumentException("decay " + decay);
+        mDecay = decay;
+        mMinSamples = minSamples;
+        mMargin = margin;
+    }
+
+    /**
+     * Adds a sample.
+     *
+     * @param metric one of the METRIC_ constants.
+     */
+    public synchronized void record(String packageName, int metric, long latencyMs) {
+        if (latencyMs < 0) return;
+        double[] means = mMeans.get(packageName);
+        int[] samples = mSamples.get(packageName);
+        if (means == null) {
+            means = new double[METRIC_COUNT];
+            samples = new int[METRIC_COUNT];
+            mMeans.put(packageName, means);
+            mSamples.put(packageName, samples);
+        }
+        means[metric] = samples[metric] == 0
+                ? latencyMs : means[metric] + mDecay * (latencyMs - means[metric]);
+        if (samples[metric] < Integer.MAX_VALUE) samples[metric]++;
+    }
+
+    /**
+     * @return The decayed mean of the metric, or NaN if there is no sample.
+     */
+    public synchronized double getMean(String packageName, int metric) {
+        int[] samples = mSamples.get(packageName);
+        return samples == null || samples[metric] == 0
+                ? Double.NaN : mMeans.get(packageName)[metric];
+    }
+
+    public synchronized int getSampleCount(String packageName, int metric) {
+        int[] samples = mSamples.get(packageName);
+        return samples == null ? 0 : samples[metric];
+    }
+
+    /**
+     * @return Whether the provider lacks samples of its bind time, which a short bind measures,
+     *         i.e. whether it should be probed before it can be ranked.
+     */
+    public boolean needsProbe(String packageName) {
+        return (getMetricsWithSamples(packageName) & PROBE_METRICS) != PROBE_METRICS;
+    }
+
+    /**
+     * @return The score in ms, lower is faster, or NaN if a metric lacks samples.
+     */
+    public synchronized double getScore(String packageName) {
+        return getScore(packageName, ALL_METRICS);
+    }
+
+    private double getScore(String packageName, int metrics) {
+        int[] samples = mSamples.get(packageName);
+        if (samples == null) return Double.NaN;
+        double[] means = mMeans.get(packageName);
+        double score = 0;
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+            if ((metrics & (1 << metric)) == 0) continue;
+            if (samples[metric] < mMinSamples) return Double.NaN;
+            score += METRIC_WEIGHTS[metric] * means[metric];
+        }
+        return score;
+    }
+
+    /**
+     * @return A bit per metric with at least the minimum number of samples.
+     */
+    private synchronized int getMetricsWithSamples(String packageName) {
+        int[] samples = mSamples.get(packageName);
+        if (samples == null) return 0;
+        int metrics = 0;
+        for (int metric = 0; metric < METRIC_COUNT; metric++) {
+            if (samples[metric] >= mMinSamples) metrics |= 1 << metric;
+        }
+        return metrics;
+    }
+
+    @Override
+    public synchronized String pick(List<String> candidates) {
+        // Compare on the metrics every candidate with the probed ones has.
+        int metrics = ALL_METRICS;
+        boolean any = false;
+        for (int i = 0; i < candidates.size(); i++) {
+            int sampled = getMetricsWithSamples(candidates.get(i));
+            if ((sampled & PROBE_METRICS) != PROBE_METRICS) continue;
+            metrics &= sampled;
+            any = true;
+        }
+        if (!any) return null;
+
+        String fastest = null;
+        double fastestScore = Double.NaN;
+        for (int i = 0; i < candidates.size(); i++) {
+            double score = getScore(candidates.get(i), metrics);
+            if (!Double.isNaN(score) && (fastest == null || score < fastestScore)) {
+                fastest = candidates.get(i);
+                fastestScore = score;
+            }
+        }
+        if (fastest == null) return null;
+
+        double firstScore = getScore(candidates.get(0), metrics);
+        if (!Double.isNaN(firstScore) && fastestScore > firstScore * (1 - mMargin)) {
+            return candidates.get(0);
+        }
+        return fastest;
+    }
+
+    /**
+     * Forgets a provider, e.g. once it is uninstalled.
+     */
+    public synchronized void remove(String packageName) {
+        mMeans.remove(packageName);
+        mSamples.remove(packageName);
+    }
+
+    public synchronized void write(DataOutput out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(mMeans.size());
+        for (Map.Entry<String, double[]> entry : mMeans.entrySet()) {
+            out.writeUTF(entry.getKey());
+            int[] samples = mSamples.get(entry.getKey());
+            for (int metric = 0; metric < METRIC_COUNT; metric++) {
+                out.writeDouble(entry.getValue()[metric]);
+                out.writeInt(samples[metric]);
+            }
+        }
+    }
+
+    /**
+     * Replaces the statistics with those written by {@link #write(DataOutput)}.
+     *
+     * @throws IOException if the data is truncated or in another format, in which case the
+     *         statistics are left unchanged.
+     */
+    public synchronized void read(DataInput in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Unknown format");
+        }
+        int count = in.readInt();
+        if (count < 0) throw new IOException("Bad count " + count);
+        Map<String, double[]> means = new HashMap<>();
+        Map<String, int[]> samples = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String packageName = in.readUTF();
+            double[] packageMeans = new double[METRIC_COUNT];
+            int[] packageSamples = new int[METRIC_COUNT];
+            for (int metric = 0; metric < METRIC_COUNT; metric++) {
+                packageMeans[metric] = in.readDouble();
+                packageSamples[metric] = Math.max(in.readInt(), 0);
+            }
+            means.put(packageName, packageMeans);
+            samples.put(packageName, packageSamples);
+        }
+        mMeans.clear();
+        mMeans.putAll(means);
+        mSamples.clear();
+        mSamples.putAll(samples);
+    }
+
+    @Override
+    public synchronized String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<String, double[]> entry : mMeans.entrySet()) {
+            builder.append(entry.getKey()).append(':');
+            int[] samples = mSamples.get(entry.getKey());
+            for (int metric = 0; metric < METRIC_COUNT; metric++) {
+                builder.append(String.format(Locale.US, " %s=%.1fms(%d)", METRIC_NAMES[metric],
+                        entry.getValue()[metric], samples[metric]));
+            }
+            builder.append('\n');
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,123 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.core;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Picks the app to use for Custom Tabs.
+ *
+ * <p>The candidates are the apps that handle VIEW intents and implement the Custom Tabs service.
+ * The default browser is preferred if it is a candidate, unless a specialized handler is installed,
+ * in which case the {@link Ranking} picks a candidate, or else the first one is used.
+ */
+public final class ProviderSelector {
+    private ProviderSelector() {}
+
+    /**
+     * Picks among the candidates when the default browser cannot be used.
+     */
+    public interface Ranking {
+        /**
+         * @param candidates every app supporting Custom Tabs, in the package manager's order.
+         * @return The candidate to use, or null to use the first one.
+         */
+        String pick(List<String> candidates);
+    }
+
+    public static Selection select(PackageQueries queries) {
+        return select(queries, null);
+    }
+
+    /**
+     * @param ranking picks the provider when the default browser cannot be used, may be null.
+     */
+    public static Selection select(PackageQueries queries, Ranking ranking) {
+        String defaultViewHandler = queries.getDefaultViewHandler();
+        List<? extends PackageQueries.ViewHandler> viewHandlers = queries.getViewHandlers();
+
+        List<String> candidates = new ArrayList<>();
+        // Some apps register more than one VIEW activity.
+        Set<String> seen = new HashSet<>(viewHandlers.size() * 2);
+        boolean hasSpecializedHandler = false;
+        for (int i = 0; i < viewHandlers.size(); i++) {
+            PackageQueries.ViewHandler handler = viewHandlers.get(i);
+            hasSpecializedHandler |= handler.isSpecialized();
+            String packageName = handler.getPackageName();
+            if (seen.add(packageName) && queries.hasCustomTabsService(packageName)) {
+                candidates.add(packageName);
+            }
+        }
+
+        String packageNameToUse;
+        if (candidates.isEmpty()) {
+            packageNameToUse = null;
+        } else if (defaultViewHandler != null && !defaultViewHandler.isEmpty()
+                && !hasSpecializedHandler && candidates.contains(defaultViewHandler)) {
+            packageNameToUse = defaultViewHandler;
+        } else {
+            String ranked = ranking == null ? null : ranking.pick(candidates);
+            packageNameToUse = ranked != null && candidates.contains(ranked)
+                    ? ranked : candidates.get(0);
+        }
+        return new Selection(packageNameToUse, defaultViewHandler, candidates);
+    }
+
+    /**
+     * The result of {@link #select(PackageQueries)}.
+     */
+    public static final class Selection {
+        private final String mPackageNameToUse;
+        private final String mDefaultViewHandler;
+        private final List<String> mCandidates;
+
+        Selection(String packageNameToUse, String defaultViewHandler, List<String> candidates) {
+            mPackageNameToUse = packageNameToUse;
+            mDefaultViewHandler = defaultViewHandler;
+            mCandidates = Collections.unmodifiableList(candidates);
+        }
+
+        /**
+         * @return The package to connect to, or null if no app supports Custom Tabs.
+         */
+        public String getPackageNameToUse() {
+            return mPackageNameToUse;
+        }
+
+        /**
+         * @return The default VIEW handler, or null if there is none.
+         */
+        public String getDefaultViewHandler() {
+            return mDefaultViewHandler;
+        }
+
+        /**
+         * @return Every app supporting Custom Tabs, in the package manager's order.
+         */
+        public List<String> getCandidates() {
+            return mCandidates;
+        }
+
+        /**
+         * @return Whether the default VIEW handler was picked.
+         */
+        public boolean isDefaultViewHandler() {
+            return mPackageNameToUse != null && mPackageNameToUse.equals(mDefaultViewHandler);
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package org.chromium.customtabsdemos.core;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * {@link PackageQueries} over an in-memory set of apps.
+ */
+public class FakePackageQueries implements PackageQueries {
+    private final List<Handler> mViewHandlers = new ArrayList<>();
+    private final Set<String> mServices = new HashSet<>();
+    private String mDefaultViewHandler;
+
+    public FakePackageQueries addViewHandler(String packageName, boolean specialized,
+            boolean hasService) {
+        mViewHandlers.add(new Handler(packageName, specialized));
+        if (hasService) mServices.add(packageName);
+        return this;
+    }
+
+    public FakePackageQueries setDefaultViewHandler(String packageName) {
+        mDefaultViewHandler = packageName;
+        return this;
+    }
+
+    @Override
+    public String getDefaultViewHandler() {
+        return mDefaultViewHandler;
+    }
+
+    @Override
+    public List<Handler> getViewHandlers() {
+        return mViewHandlers;
+    }
+
+    @Override
+    public boolean hasCustomTabsService(String packageName) {
+        return mServices.contains(packageName);
+    }
+
+    static class Handler implements ViewHandler {
+        private final String mPackageName;
+        private final boolean mSpecialized;
+
+        Handler(String packageName, boolean specialized) {
+            mPackageName = packageName;
+            mSpecialized = specialized;
+        }
+
+        @Override
+        public String getPackageName() {
+            return mPackageName;
+        }
+
+        @Override
+        public boolean isSpecialized() {
+            return mSpecialized;
+        }
+    }
+}
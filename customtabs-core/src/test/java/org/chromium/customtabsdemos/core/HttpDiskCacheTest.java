@@ -0,0 +1,302 @@
+package org.chromium.customtabsdemos.core;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link HttpDiskCache}, against an in-process HTTP server.
+ */
+public class HttpDiskCacheTest {
+    private static final String BODY = "<html>cached</html>";
+    private static final String LAST_MODIFIED = "Wed, 21 Oct 2026 07:28:00 GMT";
+
+    private final AtomicInteger mRequests = new AtomicInteger();
+    private final AtomicInteger mNotModified = new AtomicInteger();
+    private final AtomicLong mNow = new AtomicLong(1000);
+    private HttpServer mServer;
+    private File mDirectory;
+
+    @Before
+    public void setUp() throws IOException {
+        mServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        // Validated with an ETag.
+        mServer.createContext("/etag", exchange -> {
+            mRequests.incrementAndGet();
+            if ("\"v1\"".equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                mNotModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().add("ETag", "\"v1\"");
+                exchange.getResponseHeaders().add("Content-Type", "text/html; charset=utf-8");
+                send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.close();
+        });
+        // Validated with a date.
+        mServer.createContext("/dated", exchange -> {
+            mRequests.incrementAndGet();
+            if (LAST_MODIFIED.equals(
+                    exchange.getRequestHeaders().getFirst("If-Modified-Since"))) {
+                mNotModified.incrementAndGet();
+                exchange.sendResponseHeaders(304, -1);
+            } else {
+                exchange.getResponseHeaders().add("Last-Modified", LAST_MODIFIED);
+                send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            }
+            exchange.close();
+        });
+        // 1 KiB per path, e.g. /big/1.
+        mServer.createContext("/big", exchange -> {
+            mRequests.incrementAndGet();
+            send(exchange, new byte[1024]);
+            exchange.close();
+        });
+        mServer.createContext("/nostore", exchange -> {
+            mRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "no-store");
+            send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        mServer.createContext("/private", exchange -> {
+            exchange.getResponseHeaders().add("Cache-Control", "private, max-age=60");
+            send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        mServer.createContext("/cookie", exchange -> {
+            exchange.getResponseHeaders().add("Set-Cookie", "id=1");
+            send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        mServer.createContext("/vary", exchange -> {
+            exchange.getResponseHeaders().add("Vary", "Accept-Language");
+            send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        // Cacheable, but not explicitly public.
+        mServer.createContext("/account", exchange -> {
+            mRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Cache-Control", "max-age=60");
+            send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        mServer.createContext("/redirect", exchange -> {
+            mRequests.incrementAndGet();
+            exchange.getResponseHeaders().add("Location", "/etag");
+            exchange.sendResponseHeaders(302, -1);
+            exchange.close();
+        });
+        // Echoes the Cookie of the request in a header.
+        mServer.createContext("/headers", exchange -> {
+            exchange.getResponseHeaders().add("X-Cookie",
+                    String.valueOf(exchange.getRequestHeaders().getFirst("Cookie")));
+            exchange.getResponseHeaders().add("Cache-Control", "public, max-age=60");
+            send(exchange, BODY.getBytes(StandardCharsets.UTF_8));
+            exchange.close();
+        });
+        mServer.start();
+        mDirectory = Files.createTempDirectory("http-cache").toFile();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop(0);
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) file.delete();
+        }
+        mDirectory.delete();
+    }
+
+    @Test
+    public void fetch_storesBodyAndServesItFromDisk() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        HttpDiskCache.Entry entry = cache.fetch(url("/etag"), 0);
+
+        assertEquals("text/html", entry.getMimeType());
+        assertEquals("utf-8", entry.getCharset());
+        assertEquals(BODY, read(entry));
+        assertEquals(BODY, read(cache.get(url("/etag"))));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void fetch_freshEntryDoesNotGoToTheNetwork() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        cache.fetch(url("/etag"), 60000);
+        mNow.addAndGet(1000);
+        cache.fetch(url("/etag"), 60000);
+
+        assertEquals(1, mRequests.get());
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void fetch_revalidatesStaleEntryWithETag() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        cache.fetch(url("/etag"), 0);
+        mNow.addAndGet(1000);
+        HttpDiskCache.Entry entry = cache.fetch(url("/etag"), 0);
+
+        assertEquals(1, mNotModified.get());
+        assertEquals(1, cache.getDownloadCount());
+        assertEquals(1, cache.getRevalidationCount());
+        assertEquals(mNow.get(), entry.getFetchedAtMs());
+        assertEquals(BODY, read(entry));
+    }
+
+    @Test
+    public void fetch_revalidatesStaleEntryWithLastModified() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        cache.fetch(url("/dated"), 0);
+        HttpDiskCache.Entry entry = cache.fetch(url("/dated"), 0);
+
+        assertEquals(1, mNotModified.get());
+        assertEquals(LAST_MODIFIED, entry.getLastModified());
+        assertEquals(BODY, read(entry));
+    }
+
+    @Test
+    public void fetch_evictsLeastRecentlyUsedBeyondMaxBytes() throws IOException {
+        HttpDiskCache cache = newCache(2048);
+        cache.fetch(url("/big/1"), 0);
+        cache.fetch(url("/big/2"), 0);
+        cache.get(url("/big/1"));
+        cache.fetch(url("/big/3"), 0);
+
+        assertTrue(cache.contains(url("/big/1")));
+        assertFalse(cache.contains(url("/big/2")));
+        assertTrue(cache.contains(url("/big/3")));
+        assertEquals(2048, cache.getSize());
+    }
+
+    @Test
+    public void fetch_rejectsNoStoreResponses() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        try {
+            cache.fetch(url("/nostore"), 0);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertFalse(cache.contains(url("/nostore")));
+    }
+
+    @Test
+    public void fetch_rejectsResponsesOthersMayNotShare() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        for (String path : new String[] {"/private", "/cookie", "/vary"}) {
+            try {
+                cache.fetch(url(path), 0);
+                fail(path);
+            } catch (IOException expected) {
+            }
+            assertFalse(path, cache.contains(url(path)));
+        }
+    }
+
+    @Test
+    public void fetch_doesNotFollowOrStoreRedirects() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        try {
+            cache.fetch(url("/redirect"), 0);
+            fail();
+        } catch (IOException expected) {
+        }
+        assertFalse(cache.contains(url("/redirect")));
+        assertFalse(cache.contains(url("/etag")));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void fetch_sendsRequestHeadersAndStoresResponseHeaders() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        cache.fetch(url("/headers"), 0, Collections.singletonMap("Cookie", "id=1"));
+
+        HttpDiskCache.Entry entry = newCache(1 << 20).get(url("/headers"));
+        assertEquals("OK", entry.getReasonPhrase());
+        assertEquals("id=1", entry.getHeaders().get("X-cookie"));
+        assertEquals("public, max-age=60", entry.getHeaders().get("Cache-control"));
+        assertFalse(entry.getHeaders().containsKey("Content-length"));
+    }
+
+    @Test
+    public void fetch_storesCredentialedResponsesOnlyIfPublic() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        try {
+            cache.fetch(url("/account"), 0, Collections.singletonMap("Cookie", "id=1"));
+            fail();
+        } catch (IOException expected) {
+        }
+        assertFalse(cache.contains(url("/account")));
+
+        cache.fetch(url("/account"), 0);
+        assertTrue(cache.contains(url("/account")));
+    }
+
+    @Test
+    public void getFresh_returnsNullOnceStaleWithoutGoingToTheNetwork() throws IOException {
+        HttpDiskCache cache = newCache(1 << 20);
+        assertNull(cache.getFresh(url("/etag"), 60000));
+        cache.fetch(url("/etag"), 60000);
+
+        assertEquals(BODY, read(cache.getFresh(url("/etag"), 60000)));
+        mNow.addAndGet(60000);
+        assertNull(cache.getFresh(url("/etag"), 60000));
+        assertEquals(1, mRequests.get());
+    }
+
+    @Test
+    public void reopen_restoresIndexAndRevalidates() throws IOException {
+        newCache(1 << 20).fetch(url("/etag"), 0);
+
+        HttpDiskCache reopened = newCache(1 << 20);
+        assertEquals(1, reopened.getEntryCount());
+        assertEquals(BODY.length(), reopened.getSize());
+        reopened.fetch(url("/etag"), 0);
+        assertEquals(1, mNotModified.get());
+    }
+
+    private HttpDiskCache newCache(long maxBytes) throws IOException {
+        return new HttpDiskCache(mDirectory, maxBytes, mNow::get);
+    }
+
+    private String url(String path) {
+        return "http://127.0.0.1:" + mServer.getAddress().getPort() + path;
+    }
+
+    private static void send(HttpExchange exchange, byte[] body)
+            throws IOException {
+        exchange.sendResponseHeaders(200, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private static String read(HttpDiskCache.Entry entry) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = entry.openStream()) {
+            byte[] buffer = new byte[256];
+            int read;
+            while ((read = in.read(buffer)) > 0) out.write(buffer, 0, read);
+        }
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,101 @@
+package org.chromium.customtabsdemos.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link LinkRanker}.
+ */
+public class LinkRankerTest {
+    private static final int HEIGHT = 1000;
+
+    @Test
+    public void rank_newItemsAreOrderedByPosition() {
+        LinkRanker ranker = new LinkRanker();
+        ranker.setVisible(new int[] {3, 4, 5}, 0);
+
+        int[] ranking = ranker.rank(items(3, 4, 5), HEIGHT, 0);
+
+        assertTrue(Arrays.equals(new int[] {3, 4, 5}, ranking));
+    }
+
+    @Test
+    public void rank_leavesOutItemsMostlyOffScreen() {
+        LinkRanker ranker = new LinkRanker();
+        List<LinkRanker.Item> items = Arrays.asList(
+                new LinkRanker.Item(0, -300, 100),
+                new LinkRanker.Item(1, 100, 400),
+                new LinkRanker.Item(2, 900, 1200));
+
+        int[] ranking = ranker.rank(items, HEIGHT, 0);
+
+        assertTrue(Arrays.equals(new int[] {1}, ranking));
+    }
+
+    @Test
+    public void rank_changesWhileTheListRests() {
+        LinkRanker ranker = new LinkRanker();
+        ranker.setVisible(new int[] {1}, 0);
+        // Scrolled so that item 0 appears above item 1, which has been on screen for a while.
+        ranker.setVisible(new int[] {0, 1}, 1000);
+
+        assertTrue(Arrays.equals(new int[] {1, 0}, ranker.rank(items(0, 1), HEIGHT, 1000)));
+        assertTrue(Arrays.equals(new int[] {1, 0}, ranker.rank(items(0, 1), HEIGHT, 3000)));
+        // Once both have the maximum dwell, the position decides.
+        assertTrue(Arrays.equals(new int[] {0, 1}, ranker.rank(items(0, 1), HEIGHT, 4000)));
+    }
+
+    @Test
+    public void needsRerank_untilEveryItemReachesMaxDwell() {
+        LinkRanker ranker = new LinkRanker();
+        ranker.setVisible(new int[] {0}, 0);
+        ranker.setVisible(new int[] {0, 1}, 1000);
+
+        assertTrue(ranker.needsRerank(LinkRanker.MAX_DWELL_MS));
+        assertFalse(ranker.needsRerank(1000 + LinkRanker.MAX_DWELL_MS));
+    }
+
+    @Test
+    public void hintDelay_debouncesScrollsAndWaitsOutFlings() {
+        LinkRanker ranker = new LinkRanker();
+        assertEquals(0, ranker.getHintDelayMs(0));
+
+        ranker.onScrolled(false, 1000);
+        assertEquals(LinkRanker.DEBOUNCE_MS, ranker.getHintDelayMs(1000));
+        assertEquals(LinkRanker.DEBOUNCE_MS - 100, ranker.getHintDelayMs(1100));
+
+        ranker.onScrolled(true, 2000);
+        assertEquals(-1, ranker.getHintDelayMs(5000));
+
+        ranker.onScrollIdle(5000);
+        assertEquals(LinkRanker.DEBOUNCE_MS, ranker.getHintDelayMs(5000));
+        assertEquals(0, ranker.getHintDelayMs(5000 + LinkRanker.DEBOUNCE_MS));
+    }
+
+    @Test
+    public void markHinted_onlyWhenTheHintedPositionsChange() {
+        LinkRanker ranker = new LinkRanker();
+
+        assertTrue(ranker.markHinted(new int[] {1, 2, 3}, 2));
+        assertFalse(ranker.markHinted(new int[] {1, 2, 4}, 2));
+        assertTrue(ranker.markHinted(new int[] {2, 1, 3}, 2));
+
+        ranker.reset();
+        assertTrue(ranker.markHinted(new int[] {2, 1, 3}, 2));
+    }
+
+    /**
+     * Items of 200px stacked from the top of the viewport.
+     */
+    private static List<LinkRanker.Item> items(int... positions) {
+        LinkRanker.Item[] items = new LinkRanker.Item[positions.length];
+        for (int i = 0; i < positions.length; i++) {
+            items[i] = new LinkRanker.Item(positions[i], i * 200, i * 200 + 200);
+        }
+        return Arrays.asList(items);
+    }
+}
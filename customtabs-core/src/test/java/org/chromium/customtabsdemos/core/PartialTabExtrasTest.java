@@ -0,0 +1,54 @@
+package org.chromium.customtabsdemos.core;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link PartialTabExtras}.
+ */
+public class PartialTabExtrasTest {
+    @Test
+    public void write_putsHeightAndCornerExtras() {
+        Map<String, Integer> extras = new HashMap<>();
+        PartialTabExtras.write(extras::put, PartialTabExtras.ACTIVITY_HEIGHT_FIXED, 600, 16, 42,
+                true);
+        assertEquals(Integer.valueOf(600),
+                extras.get(PartialTabExtras.EXTRA_INITIAL_ACTIVITY_HEIGHT_PX));
+        assertEquals(Integer.valueOf(PartialTabExtras.ACTIVITY_HEIGHT_FIXED),
+                extras.get(PartialTabExtras.EXTRA_ACTIVITY_HEIGHT_RESIZE_BEHAVIOR));
+        assertEquals(Integer.valueOf(42),
+                extras.get(PartialTabExtras.EXTRA_TOOLBAR_CORNER_RADIUS_IN_PIXEL));
+        assertFalse(extras.containsKey(PartialTabExtras.EXTRA_ENABLE_BACKGROUND_INTERACTION));
+    }
+
+    @Test
+    public void write_disablesBackgroundInteraction() {
+        Map<String, Integer> extras = new HashMap<>();
+        PartialTabExtras.write(extras::put, PartialTabExtras.ACTIVITY_HEIGHT_DEFAULT, 600, 0, 0,
+                false);
+        assertEquals(Integer.valueOf(PartialTabExtras.BACKGROUND_INTERACT_OFF_VALUE),
+                extras.get(PartialTabExtras.EXTRA_ENABLE_BACKGROUND_INTERACTION));
+    }
+
+    @Test
+    public void write_rejectsOutOfRangeValues() {
+        Map<String, Integer> extras = new HashMap<>();
+        try {
+            PartialTabExtras.write(extras::put, PartialTabExtras.ACTIVITY_HEIGHT_DEFAULT, 0, 0, 0,
+                    true);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        try {
+            PartialTabExtras.write(extras::put, PartialTabExtras.ACTIVITY_HEIGHT_DEFAULT, 600,
+                    PartialTabExtras.TOOLBAR_CORNER_RADIUS_MAX_DP + 1, 0, true);
+            fail();
+        } catch (IllegalArgumentException expected) {
+        }
+        assertTrue(extras.isEmpty());
+    }
+}
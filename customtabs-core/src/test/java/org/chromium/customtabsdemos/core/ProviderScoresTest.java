@@ -0,0 +1,118 @@
+package org.chromium.customtabsdemos.core;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ProviderScores}.
+ */
+public class ProviderScoresTest {
+    private static final List<String> CANDIDATES = Arrays.asList("first", "second");
+
+    @Test
+    public void record_decaysTowardsRecentSamples() {
+        ProviderScores scores = new ProviderScores(0.5, 1, 0);
+        scores.record("first", ProviderScores.METRIC_BIND, 100);
+        assertEquals(100, scores.getMean("first", ProviderScores.METRIC_BIND), 0.001);
+        scores.record("first", ProviderScores.METRIC_BIND, 200);
+        assertEquals(150, scores.getMean("first", ProviderScores.METRIC_BIND), 0.001);
+        assertEquals(2, scores.getSampleCount("first", ProviderScores.METRIC_BIND));
+        assertTrue(Double.isNaN(scores.getMean("first", ProviderScores.METRIC_WARMUP)));
+    }
+
+    @Test
+    public void pick_needsSamplesOfEveryMetric() {
+        ProviderScores scores = new ProviderScores(0.2, 2, 0);
+        recordAll(scores, "second", 10, 1);
+        assertNull(scores.pick(CANDIDATES));
+        recordAll(scores, "second", 10, 1);
+        assertEquals("second", scores.pick(CANDIDATES));
+    }
+
+    @Test
+    public void pick_choosesFastestBeyondMargin() {
+        ProviderScores scores = new ProviderScores(0.2, 1, 0.1);
+        recordAll(scores, "first", 100, 1);
+        recordAll(scores, "second", 95, 1);
+        assertEquals("first", scores.pick(CANDIDATES));
+
+        ProviderScores faster = new ProviderScores(0.2, 1, 0.1);
+        recordAll(faster, "first", 100, 1);
+        recordAll(faster, "second", 50, 1);
+        assertEquals("second", faster.pick(CANDIDATES));
+        assertNull(faster.pick(Arrays.asList("unknown")));
+    }
+
+    @Test
+    public void pick_comparesOnlyMetricsEveryRankedCandidateHas() {
+        ProviderScores scores = new ProviderScores(0.2, 1, 0);
+        // The connected provider has launched tabs, the other one was only probed.
+        recordAll(scores, "first", 100, 1);
+        assertTrue(scores.needsProbe("second"));
+        assertEquals("first", scores.pick(CANDIDATES));
+
+        scores.record("second", ProviderScores.METRIC_BIND, 40);
+        assertFalse(scores.needsProbe("second"));
+        // Without the warmup and TAB_SHOWN latencies of "second", only the bind is compared.
+        assertEquals("second", scores.pick(CANDIDATES));
+
+        scores.record("second", ProviderScores.METRIC_WARMUP, 40);
+        scores.record("second", ProviderScores.METRIC_TAB_SHOWN, 1000);
+        assertEquals("first", scores.pick(CANDIDATES));
+    }
+
+    @Test
+    public void selector_usesRankingWhenDefaultCannotBeUsed() {
+        ProviderScores scores = new ProviderScores(0.2, 1, 0);
+        recordAll(scores, "other", 10, 1);
+        FakePackageQueries queries = new FakePackageQueries()
+                .addViewHandler("first", false, true)
+                .addViewHandler("other", false, true)
+                .setDefaultViewHandler("none");
+        assertEquals("other",
+                ProviderSelector.select(queries, scores).getPackageNameToUse());
+
+        queries.setDefaultViewHandler("first");
+        assertEquals("first",
+                ProviderSelector.select(queries, scores).getPackageNameToUse());
+    }
+
+    @Test
+    public void writeAndRead_roundTrips() throws IOException {
+        ProviderScores scores = new ProviderScores();
+        recordAll(scores, "first", 42, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        scores.write(new DataOutputStream(bytes));
+
+        ProviderScores restored = new ProviderScores();
+        restored.read(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(42, restored.getMean("first", ProviderScores.METRIC_TAB_SHOWN), 0.001);
+        assertEquals(3, restored.getSampleCount("first", ProviderScores.METRIC_WARMUP));
+        assertEquals(scores.getScore("first"), restored.getScore("first"), 0.001);
+
+        try {
+            restored.read(new DataInputStream(new ByteArrayInputStream(new byte[4])));
+            fail();
+        } catch (IOException expected) {
+        }
+        assertEquals(42, restored.getMean("first", ProviderScores.METRIC_BIND), 0.001);
+    }
+
+    private static void recordAll(ProviderScores scores, String packageName, long latencyMs,
+            int times) {
+        for (int i = 0; i < times; i++) {
+            scores.record(packageName, ProviderScores.METRIC_BIND, latencyMs);
+            scores.record(packageName, ProviderScores.METRIC_WARMUP, latencyMs);
+            scores.record(packageName, ProviderScores.METRIC_TAB_SHOWN, latencyMs);
+        }
+    }
+}
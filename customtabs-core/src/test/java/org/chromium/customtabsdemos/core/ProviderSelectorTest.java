@@ -0,0 +1,62 @@
+package org.chromium.customtabsdemos.core;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for {@link ProviderSelector}.
+ */
+public class ProviderSelectorTest {
+    @Test
+    public void noCustomTabsProvider_selectsNothing() {
+        FakePackageQueries queries = new FakePackageQueries()
+                .addViewHandler("browser", false, false)
+                .setDefaultViewHandler("browser");
+        ProviderSelector.Selection selection = ProviderSelector.select(queries);
+        assertNull(selection.getPackageNameToUse());
+        assertTrue(selection.getCandidates().isEmpty());
+    }
+
+    @Test
+    public void defaultBrowserWithCustomTabs_isPreferred() {
+        FakePackageQueries queries = new FakePackageQueries()
+                .addViewHandler("first", false, true)
+                .addViewHandler("default", false, true)
+                .setDefaultViewHandler("default");
+        ProviderSelector.Selection selection = ProviderSelector.select(queries);
+        assertEquals("default", selection.getPackageNameToUse());
+        assertTrue(selection.isDefaultViewHandler());
+        assertEquals(Arrays.asList("first", "default"), selection.getCandidates());
+    }
+
+    @Test
+    public void defaultBrowserWithoutCustomTabs_fallsBackToFirstCandidate() {
+        FakePackageQueries queries = new FakePackageQueries()
+                .addViewHandler("default", false, false)
+                .addViewHandler("other", false, true)
+                .setDefaultViewHandler("default");
+        assertEquals("other", ProviderSelector.select(queries).getPackageNameToUse());
+    }
+
+    @Test
+    public void specializedHandler_fallsBackToFirstCandidate() {
+        FakePackageQueries queries = new FakePackageQueries()
+                .addViewHandler("first", false, true)
+                .addViewHandler("default", false, true)
+                .addViewHandler("site", true, false)
+                .setDefaultViewHandler("default");
+        assertEquals("first", ProviderSelector.select(queries).getPackageNameToUse());
+    }
+
+    @Test
+    public void repeatedHandlers_areListedOnce() {
+        FakePackageQueries queries = new FakePackageQueries()
+                .addViewHandler("browser", false, true)
+                .addViewHandler("browser", false, true);
+        assertEquals(Arrays.asList("browser"),
+                ProviderSelector.select(queries).getCandidates());
+    }
+}
@@ -0,0 +1,82 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.fakeprovider;
+
+import android.net.Uri;
+import android.os.Bundle;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.browser.customtabs.CustomTabsService;
+import androidx.browser.customtabs.CustomTabsSessionToken;
+
+import java.util.List;
+
+/**
+ * Accepts sessions, warmup and mayLaunchUrl without doing any work, so that benchmarks only
+ * measure the client.
+ */
+public class FakeCustomTabsService extends CustomTabsService {
+    @Override
+    protected boolean warmup(long flags) {
+        return true;
+    }
+
+    @Override
+    protected boolean newSession(@NonNull CustomTabsSessionToken sessionToken) {
+        return true;
+    }
+
+    @Override
+    protected boolean mayLaunchUrl(@NonNull CustomTabsSessionToken sessionToken,
+            @Nullable Uri url, @Nullable Bundle extras, @Nullable List<Bundle> otherLikelyBundles) {
+        return true;
+    }
+
+    @Nullable
+    @Override
+    protected Bundle extraCommand(@NonNull String commandName, @Nullable Bundle args) {
+        return null;
+    }
+
+    @Override
+    protected boolean updateVisuals(@NonNull CustomTabsSessionToken sessionToken,
+            @Nullable Bundle bundle) {
+        return false;
+    }
+
+    @Override
+    protected boolean requestPostMessageChannel(@NonNull CustomTabsSessionToken sessionToken,
+            @NonNull Uri postMessageOrigin) {
+        return false;
+    }
+
+    @Override
+    protected int postMessage(@NonNull CustomTabsSessionToken sessionToken,
+            @NonNull String message, @Nullable Bundle extras) {
+        return RESULT_FAILURE_DISALLOWED;
+    }
+
+    @Override
+    protected boolean validateRelationship(@NonNull CustomTabsSessionToken sessionToken,
+            int relation, @NonNull Uri origin, @Nullable Bundle extras) {
+        return false;
+    }
+
+    @Override
+    protected boolean receiveFile(@NonNull CustomTabsSessionToken sessionToken,
+            @NonNull Uri uri, int purpose, @Nullable Bundle extras) {
+        return false;
+    }
+}
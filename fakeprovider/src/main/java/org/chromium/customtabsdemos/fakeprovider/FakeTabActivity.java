@@ -0,0 +1,73 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.fakeprovider;
+
+import android.app.Activity;
+import android.content.Intent;
+import android.os.Bundle;
+import android.widget.TextView;
+
+import androidx.browser.customtabs.CustomTabsCallback;
+import androidx.browser.customtabs.CustomTabsSessionToken;
+
+/**
+ * Shows the launched URL as plain text, and reports the navigation events a browser would send
+ * once the tab is on screen.
+ */
+public class FakeTabActivity extends Activity {
+    private TextView mTextView;
+    private boolean mNavigationPending;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        mTextView = new TextView(this);
+        setContentView(mTextView);
+        onNewIntent(getIntent());
+    }
+
+    @Override
+    protected void onNewIntent(Intent intent) {
+        super.onNewIntent(intent);
+        setIntent(intent);
+        mTextView.setText(String.valueOf(intent.getData()));
+        mNavigationPending = true;
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        // Posted so that the events follow the first layout, like a real tab being shown.
+        mTextView.post(() -> {
+            sendNavigationEvent(CustomTabsCallback.TAB_SHOWN);
+            if (!mNavigationPending) return;
+            mNavigationPending = false;
+            sendNavigationEvent(CustomTabsCallback.NAVIGATION_STARTED);
+            sendNavigationEvent(CustomTabsCallback.NAVIGATION_FINISHED);
+        });
+    }
+
+    @Override
+    protected void onPause() {
+        super.onPause();
+        sendNavigationEvent(CustomTabsCallback.TAB_HIDDEN);
+    }
+
+    private void sendNavigationEvent(int navigationEvent) {
+        CustomTabsSessionToken token = CustomTabsSessionToken.getSessionTokenFromIntent(getIntent());
+        if (token == null) return;
+        CustomTabsCallback callback = token.getCallback();
+        if (callback != null) callback.onNavigationEvent(navigationEvent, new Bundle());
+    }
+}
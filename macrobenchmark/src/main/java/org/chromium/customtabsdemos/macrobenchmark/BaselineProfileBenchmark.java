@@ -0,0 +1,116 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.IOException;
+import java.util.Collections;
+
+import kotlin.Unit;
+
+/**
+ * Compares cold start and the first launch of a tab without compilation and with the baseline
+ * profile, as installed on a fresh install from the store.
+ *
+ * <p>The app ships a starter profile in app/src/main/baseline-prof.txt. Running
+ * ./gradlew :fakeprovider:installBenchmark :app:generateBaselineProfile on a device adds the
+ * rules collected by :baselineprofile. The profile runs fail if the build has no profile.
+ */
+@RunWith(AndroidJUnit4.class)
+public class BaselineProfileBenchmark {
+    private static final int ITERATIONS = 10;
+    private static final String LAUNCH_DEMO_TITLE = "Partial Custom Tab";
+    private static final String TRACE_SECTION = "CustomTabLaunchToShown";
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    private String mPreviousBrowser;
+
+    @Before
+    public void setUp() throws IOException {
+        mPreviousBrowser = DemoApp.useFakeProvider();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        DemoApp.restoreBrowser(mPreviousBrowser);
+    }
+
+    @Test
+    public void startupWithoutCompilation() {
+        startup(new CompilationMode.None());
+    }
+
+    @Test
+    public void startupWithBaselineProfile() {
+        startup(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    @Test
+    public void firstLaunchWithoutCompilation() {
+        firstLaunch(new CompilationMode.None());
+    }
+
+    @Test
+    public void firstLaunchWithBaselineProfile() {
+        firstLaunch(new CompilationMode.Partial(BaselineProfileMode.Require, 0));
+    }
+
+    private void startup(CompilationMode compilationMode) {
+        mBenchmarkRule.measureRepeated(DemoApp.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()), compilationMode,
+                StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+
+    /**
+     * The first tab of a new process, which is when code runs interpreted without a profile.
+     */
+    private void firstLaunch(CompilationMode compilationMode) {
+        mBenchmarkRule.measureRepeated(DemoApp.PACKAGE_NAME,
+                Collections.singletonList(
+                        new TraceSectionMetric(TRACE_SECTION, TraceSectionMetric.Mode.First)),
+                compilationMode, StartupMode.COLD, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    DemoApp.openDemo(scope, LAUNCH_DEMO_TITLE);
+                    DemoApp.launchTab(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,102 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.macrobenchmark;
+
+import android.os.Build;
+
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.test.platform.app.InstrumentationRegistry;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Shared steps of the benchmarks: the packages, making the fake provider the default browser and
+ * navigating the demo list.
+ */
+final class DemoApp {
+    static final String PACKAGE_NAME = "org.chromium.customtabsdemos";
+    static final String FAKE_PROVIDER_PACKAGE_NAME = "org.chromium.customtabsdemos.fakeprovider";
+
+    private static final long TIMEOUT_MS = 5000;
+    private static final String BROWSER_ROLE = "android.app.role.BROWSER";
+
+    private DemoApp() {}
+
+    /**
+     * Makes the fake provider the browser the app resolves, so that no real browser or network
+     * is involved.
+     *
+     * @return The previous default browser, or "" if there was none, for
+     *         {@link #restoreBrowser(String)}.
+     */
+    static String useFakeProvider() throws IOException {
+        // The browser role can only be assigned from the shell since Q.
+        assumeTrue(Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q);
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        String path = device.executeShellCommand("pm path " + FAKE_PROVIDER_PACKAGE_NAME);
+        assertFalse("Install it with ./gradlew :fakeprovider:installBenchmark", path.isEmpty());
+        // The holders are separated by semicolons; the browser role has at most one.
+        String previous = device.executeShellCommand(
+                "cmd role get-role-holders " + BROWSER_ROLE).split(";")[0].trim();
+        device.executeShellCommand(
+                "cmd role add-role-holder " + BROWSER_ROLE + " " + FAKE_PROVIDER_PACKAGE_NAME);
+        return previous;
+    }
+
+    /**
+     * Gives the browser role back to the default browser replaced by {@link #useFakeProvider()}.
+     *
+     * @param previous what useFakeProvider() returned, or null if it did not get that far.
+     */
+    static void restoreBrowser(String previous) throws IOException {
+        if (previous == null || previous.equals(FAKE_PROVIDER_PACKAGE_NAME)) return;
+        UiDevice device = UiDevice.getInstance(InstrumentationRegistry.getInstrumentation());
+        if (previous.isEmpty()) {
+            device.executeShellCommand("cmd role remove-role-holder " + BROWSER_ROLE + " "
+                    + FAKE_PROVIDER_PACKAGE_NAME);
+        } else {
+            device.executeShellCommand("cmd role add-role-holder " + BROWSER_ROLE + " " + previous);
+        }
+    }
+
+    /**
+     * Opens a demo screen from the list and waits until its launch button is shown.
+     *
+     * @param title the title of the screen in the list.
+     */
+    static void openDemo(MacrobenchmarkScope scope, String title) {
+        scope.pressHome();
+        scope.startActivityAndWait();
+        UiDevice device = scope.getDevice();
+        UiObject2 item = device.wait(Until.findObject(By.text(title)), TIMEOUT_MS);
+        item.click();
+        device.wait(Until.hasObject(By.res(PACKAGE_NAME, "start_custom_tab")), TIMEOUT_MS);
+    }
+
+    /**
+     * Taps the launch button of the current demo screen and waits for the tab.
+     */
+    static void launchTab(MacrobenchmarkScope scope) {
+        UiDevice device = scope.getDevice();
+        device.findObject(By.res(PACKAGE_NAME, "start_custom_tab")).click();
+        device.wait(Until.hasObject(By.pkg(FAKE_PROVIDER_PACKAGE_NAME).depth(0)), TIMEOUT_MS);
+    }
+}
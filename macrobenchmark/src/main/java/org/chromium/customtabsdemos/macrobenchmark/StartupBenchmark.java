@@ -0,0 +1,97 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.macrobenchmark;
+
+import androidx.benchmark.macro.BaselineProfileMode;
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.StartupTimingMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Measures the startup of DemoListActivity for every startup mode, with the app not compiled, so
+ * running interpreted and JIT only, partially AOT compiled from the profile of a few warmup runs
+ * with the baseline profile ignored, and fully compiled.
+ */
+@RunWith(Parameterized.class)
+public class StartupBenchmark {
+    private static final int ITERATIONS = 10;
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    private final StartupMode mStartupMode;
+    private final CompilationMode mCompilationMode;
+    private String mPreviousBrowser;
+
+    public StartupBenchmark(String name, StartupMode startupMode,
+            CompilationMode compilationMode) {
+        mStartupMode = startupMode;
+        mCompilationMode = compilationMode;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<Object[]> parameters() {
+        List<Object[]> parameters = new ArrayList<>();
+        for (StartupMode startupMode : StartupMode.values()) {
+            parameters.add(new Object[] {startupMode + "-none", startupMode,
+                    new CompilationMode.None()});
+            parameters.add(new Object[] {startupMode + "-warmupProfile", startupMode,
+                    new CompilationMode.Partial(BaselineProfileMode.Disable, 3)});
+            parameters.add(new Object[] {startupMode + "-full", startupMode,
+                    new CompilationMode.Full()});
+        }
+        return parameters;
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        // The app binds and warms up the provider at startup.
+        mPreviousBrowser = DemoApp.useFakeProvider();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        DemoApp.restoreBrowser(mPreviousBrowser);
+    }
+
+    @Test
+    public void startup() {
+        mBenchmarkRule.measureRepeated(DemoApp.PACKAGE_NAME,
+                Collections.singletonList(new StartupTimingMetric()), mCompilationMode,
+                mStartupMode, ITERATIONS,
+                scope -> {
+                    scope.pressHome();
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    scope.startActivityAndWait();
+                    return Unit.INSTANCE;
+                });
+    }
+}
@@ -0,0 +1,89 @@
+// Copyright 2026 Google Inc. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package org.chromium.customtabsdemos.macrobenchmark;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.TraceSectionMetric;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import kotlin.Unit;
+
+/**
+ * Measures, for each demo screen, the time from launchUrl to TAB_SHOWN, using the trace section
+ * recorded by LaunchLatencyTracker.
+ *
+ * <p>The simple demo launches without a session and never receives TAB_SHOWN, so it is left out.
+ */
+@RunWith(Parameterized.class)
+public class TabShownBenchmark {
+    private static final int ITERATIONS = 10;
+    private static final String TRACE_SECTION = "CustomTabLaunchToShown";
+
+    @Rule
+    public MacrobenchmarkRule mBenchmarkRule = new MacrobenchmarkRule();
+
+    private final String mTitle;
+    private String mPreviousBrowser;
+
+    public TabShownBenchmark(String title) {
+        mTitle = title;
+    }
+
+    @Parameterized.Parameters(name = "{0}")
+    public static List<String> parameters() {
+        return Arrays.asList(
+                "Partial Custom Tab",
+                "Service Connection Activity",
+                "Engagement Signals Demo",
+                "Customized UI Chrome Custom Tab");
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        mPreviousBrowser = DemoApp.useFakeProvider();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        DemoApp.restoreBrowser(mPreviousBrowser);
+    }
+
+    @Test
+    public void launchToTabShown() {
+        mBenchmarkRule.measureRepeated(DemoApp.PACKAGE_NAME,
+                Collections.singletonList(
+                        new TraceSectionMetric(TRACE_SECTION, TraceSectionMetric.Mode.First)),
+                new CompilationMode.Full(), null, ITERATIONS,
+                scope -> {
+                    DemoApp.openDemo(scope, mTitle);
+                    return Unit.INSTANCE;
+                },
+                scope -> {
+                    DemoApp.launchTab(scope);
+                    return Unit.INSTANCE;
+                });
+    }
+}